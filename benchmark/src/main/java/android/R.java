@@ -0,0 +1,16 @@
+package android;
+
+public final class R {
+    public static final class id {
+        public static final int list = 0x0102000a;
+        public static final int widget_frame = 0x01020018;
+    }
+
+    public static final class attr {
+        public static final int dependency = 0x010101ed;
+        public static final int key = 0x010101e8;
+        public static final int title = 0x010101e1;
+        public static final int summary = 0x010101e9;
+        public static final int fragment = 0x010102e3;
+    }
+}
@@ -0,0 +1,19 @@
+package android.app;
+
+public class Activity extends android.content.Context {
+    public android.view.LayoutInflater getLayoutInflater() {
+        return null;
+    }
+
+    public Object getLastNonConfigurationInstance() {
+        return null;
+    }
+
+    public boolean isChangingConfigurations() {
+        return false;
+    }
+
+    public boolean isFinishing() {
+        return false;
+    }
+}
@@ -0,0 +1,9 @@
+package android.app;
+
+public class Dialog {
+    public boolean isShowing() {
+        return false;
+    }
+
+    public void dismiss() {}
+}
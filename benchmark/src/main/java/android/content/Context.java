@@ -0,0 +1,32 @@
+package android.content;
+
+public abstract class Context {
+    public static final int MODE_PRIVATE = 0;
+
+    public SharedPreferences getSharedPreferences(String n, int m) {
+        return null;
+    }
+
+    public String getPackageName() {
+        return null;
+    }
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    private final android.content.res.Resources mResources = new android.content.res.Resources();
+
+    public android.content.res.Resources getResources() {
+        return mResources;
+    }
+
+    public android.content.pm.PackageManager getPackageManager() {
+        return null;
+    }
+
+    public Context createPackageContext(String p, int f)
+            throws android.content.pm.PackageManager.NameNotFoundException {
+        return null;
+    }
+}
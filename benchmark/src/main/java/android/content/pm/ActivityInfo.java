@@ -0,0 +1,5 @@
+package android.content.pm;
+
+public class ActivityInfo extends PackageItemInfo {
+    public ApplicationInfo applicationInfo;
+}
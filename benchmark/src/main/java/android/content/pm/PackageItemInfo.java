@@ -0,0 +1,11 @@
+package android.content.pm;
+
+public class PackageItemInfo {
+    public String packageName;
+    public String name;
+    public android.os.Bundle metaData;
+
+    public android.content.res.XmlResourceParser loadXmlMetaData(PackageManager pm, String n) {
+        return null;
+    }
+}
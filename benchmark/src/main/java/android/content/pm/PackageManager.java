@@ -0,0 +1,15 @@
+package android.content.pm;
+
+public abstract class PackageManager {
+    public static class NameNotFoundException extends Exception {}
+
+    public static final int GET_META_DATA = 128;
+
+    public abstract java.util.List<ResolveInfo> queryIntentActivities(
+            android.content.Intent i, int f);
+
+    public abstract android.content.res.Resources getResourcesForApplication(String p)
+            throws NameNotFoundException;
+
+    public abstract PackageInfo getPackageInfo(String p, int f) throws NameNotFoundException;
+}
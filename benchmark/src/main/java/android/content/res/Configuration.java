@@ -0,0 +1,17 @@
+package android.content.res;
+
+public class Configuration {
+    public int orientation;
+    public java.util.Locale locale;
+    public int uiMode;
+    public int screenLayout;
+    public float fontScale;
+
+    public int diff(Configuration c) {
+        return 0;
+    }
+
+    public Configuration() {}
+
+    public Configuration(Configuration c) {}
+}
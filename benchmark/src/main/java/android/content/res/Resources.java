@@ -0,0 +1,35 @@
+package android.content.res;
+
+public class Resources {
+    public static class NotFoundException extends RuntimeException {}
+
+    public java.io.InputStream openRawResource(int id) throws NotFoundException {
+        return null;
+    }
+
+    public XmlResourceParser getXml(int id) {
+        return null;
+    }
+
+    public Configuration getConfiguration() {
+        return null;
+    }
+
+    private final android.util.DisplayMetrics mMetrics = new android.util.DisplayMetrics();
+
+    public android.util.DisplayMetrics getDisplayMetrics() {
+        return mMetrics;
+    }
+
+    public String getString(int id) {
+        return null;
+    }
+
+    public CharSequence getText(int id) {
+        return null;
+    }
+
+    public String getResourceName(int id) {
+        return null;
+    }
+}
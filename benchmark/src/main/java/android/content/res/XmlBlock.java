@@ -0,0 +1,218 @@
+package android.content.res;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compiled XML parsed on the JVM. Like the native block, the data is copied and its string pool and
+ * resource map are read once, and parsers only walk the nodes.
+ */
+final class XmlBlock {
+    private static final int RES_STRING_POOL_TYPE = 0x0001;
+    private static final int RES_XML_START_ELEMENT_TYPE = 0x0102;
+    private static final int RES_XML_END_ELEMENT_TYPE = 0x0103;
+    private static final int RES_XML_RESOURCE_MAP_TYPE = 0x0180;
+    private static final int UTF8_FLAG = 1 << 8;
+    private static final int TYPE_REFERENCE = 0x01;
+    private static final int TYPE_STRING = 0x03;
+    private static final int TYPE_INT_BOOLEAN = 0x12;
+
+    private final byte[] mData;
+    private String[] mStrings = new String[0];
+    private int[] mResIds = new int[0];
+    private final int mNodes;
+
+    XmlBlock(byte[] data) {
+        mData = data.clone();
+        int offset = getShort(mData, 2);
+        while (offset < mData.length) {
+            int type = getShort(mData, offset);
+            if (type == RES_STRING_POOL_TYPE) {
+                mStrings = readStrings(offset);
+            } else if (type == RES_XML_RESOURCE_MAP_TYPE) {
+                int count = (getInt(mData, offset + 4) - getShort(mData, offset + 2)) / 4;
+                mResIds = new int[count];
+                for (int i = 0; i < count; ++i) {
+                    mResIds[i] = getInt(mData, offset + getShort(mData, offset + 2) + 4 * i);
+                }
+            } else if (type >= 0x0100) {
+                break;
+            }
+            offset += getInt(mData, offset + 4);
+        }
+        mNodes = offset;
+    }
+
+    public XmlResourceParser newParser() {
+        return new Parser();
+    }
+
+    public void close() {}
+
+    private String[] readStrings(int offset) {
+        final int count = getInt(mData, offset + 8);
+        final boolean utf8 = (getInt(mData, offset + 16) & UTF8_FLAG) != 0;
+        final int stringsStart = offset + getInt(mData, offset + 20);
+        final int headerSize = getShort(mData, offset + 2);
+        String[] strings = new String[count];
+        for (int i = 0; i < count; ++i) {
+            int position = stringsStart + getInt(mData, offset + headerSize + 4 * i);
+            if (utf8) {
+                position += (mData[position] & 0x80) != 0 ? 2 : 1;
+                int length = mData[position] & 0xff;
+                if ((length & 0x80) != 0) {
+                    length = ((length & 0x7f) << 8) | (mData[position + 1] & 0xff);
+                    ++position;
+                }
+                strings[i] = new String(mData, position + 1, length, StandardCharsets.UTF_8);
+            } else {
+                int length = getShort(mData, position);
+                if ((length & 0x8000) != 0) {
+                    length = ((length & 0x7fff) << 16) | getShort(mData, position + 2);
+                    position += 2;
+                }
+                strings[i] = new String(mData, position + 2, length * 2, StandardCharsets.UTF_16LE);
+            }
+        }
+        return strings;
+    }
+
+    private static int getShort(byte[] data, int offset) {
+        return (data[offset] & 0xff) | ((data[offset + 1] & 0xff) << 8);
+    }
+
+    private static int getInt(byte[] data, int offset) {
+        return getShort(data, offset) | (getShort(data, offset + 2) << 16);
+    }
+
+    final class Parser implements XmlResourceParser {
+        private int mOffset = -1;
+        private int mNext = mNodes;
+        private int mDepth;
+        private boolean mEnded;
+        private int mEventType = START_DOCUMENT;
+
+        @Override
+        public int next() {
+            if (mEventType == END_TAG) {
+                --mDepth;
+            }
+            while (mNext < mData.length) {
+                mOffset = mNext;
+                mNext += getInt(mData, mOffset + 4);
+                int type = getShort(mData, mOffset);
+                if (type == RES_XML_START_ELEMENT_TYPE) {
+                    ++mDepth;
+                    return mEventType = START_TAG;
+                } else if (type == RES_XML_END_ELEMENT_TYPE) {
+                    return mEventType = END_TAG;
+                }
+            }
+            mEnded = true;
+            return mEventType = END_DOCUMENT;
+        }
+
+        @Override
+        public String getName() {
+            if (mEnded || mOffset < 0) {
+                return null;
+            }
+            return mStrings[getInt(mData, ext() + 4)];
+        }
+
+        @Override
+        public int getDepth() {
+            return mDepth;
+        }
+
+        @Override
+        public int getAttributeCount() {
+            return mEventType == START_TAG ? getShort(mData, ext() + 12) : -1;
+        }
+
+        @Override
+        public String getAttributeName(int i) {
+            return mStrings[getInt(mData, attribute(i) + 4)];
+        }
+
+        @Override
+        public int getAttributeNameResource(int i) {
+            int name = getInt(mData, attribute(i) + 4);
+            return name < mResIds.length ? mResIds[name] : 0;
+        }
+
+        @Override
+        public String getAttributeValue(int i) {
+            final int attribute = attribute(i);
+            final int type = mData[attribute + 15] & 0xff;
+            final int data = getInt(mData, attribute + 16);
+            if (type == TYPE_STRING) {
+                return mStrings[data];
+            } else if (type == TYPE_REFERENCE) {
+                return "@" + data;
+            } else if (type == TYPE_INT_BOOLEAN) {
+                return data != 0 ? "true" : "false";
+            }
+            return Integer.toString(data);
+        }
+
+        @Override
+        public String getAttributeValue(String ns, String n) {
+            int index = indexOf(n);
+            return index < 0 ? null : getAttributeValue(index);
+        }
+
+        @Override
+        public int getAttributeResourceValue(int i, int d) {
+            final int attribute = attribute(i);
+            return (mData[attribute + 15] & 0xff) == TYPE_REFERENCE
+                    ? getInt(mData, attribute + 16)
+                    : d;
+        }
+
+        @Override
+        public int getAttributeIntValue(int i, int d) {
+            final int attribute = attribute(i);
+            // raw data of any typed value, dimensions are not converted
+            final int type = mData[attribute + 15] & 0xff;
+            return type != TYPE_STRING && type != TYPE_REFERENCE
+                    ? getInt(mData, attribute + 16)
+                    : d;
+        }
+
+        @Override
+        public boolean getAttributeBooleanValue(int i, boolean d) {
+            final int attribute = attribute(i);
+            return (mData[attribute + 15] & 0xff) == TYPE_INT_BOOLEAN
+                    ? getInt(mData, attribute + 16) != 0
+                    : d;
+        }
+
+        @Override
+        public int getAttributeResourceValue(String ns, String n, int d) {
+            int index = indexOf(n);
+            return index < 0 ? d : getAttributeResourceValue(index, d);
+        }
+
+        @Override
+        public void close() {}
+
+        private int ext() {
+            return mOffset + getShort(mData, mOffset + 2);
+        }
+
+        private int attribute(int i) {
+            final int ext = ext();
+            return ext + getShort(mData, ext + 8) + i * getShort(mData, ext + 10);
+        }
+
+        private int indexOf(String name) {
+            final int count = getAttributeCount();
+            for (int i = 0; i < count; ++i) {
+                if (name.equals(getAttributeName(i))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package android.content.res;
+
+public interface XmlResourceParser extends org.xmlpull.v1.XmlPullParser, android.util.AttributeSet {
+    void close();
+}
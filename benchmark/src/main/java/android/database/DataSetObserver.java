@@ -0,0 +1,7 @@
+package android.database;
+
+public abstract class DataSetObserver {
+    public void onChanged() {}
+
+    public void onInvalidated() {}
+}
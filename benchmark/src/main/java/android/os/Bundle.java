@@ -0,0 +1,58 @@
+package android.os;
+
+public class Bundle {
+    public Bundle getBundle(String k) {
+        return null;
+    }
+
+    public void putBundle(String k, Bundle b) {}
+
+    public int getInt(String k) {
+        return 0;
+    }
+
+    public int getInt(String k, int d) {
+        return 0;
+    }
+
+    public boolean containsKey(String k) {
+        return false;
+    }
+
+    public java.util.Set<String> keySet() {
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return true;
+    }
+
+    public void putParcelable(String k, Parcelable p) {}
+
+    public <T extends Parcelable> T getParcelable(String k) {
+        return null;
+    }
+
+    public android.util.SparseArray<Parcelable> getSparseParcelableArray(String k) {
+        return null;
+    }
+
+    public void putSparseParcelableArray(
+            String k, android.util.SparseArray<? extends Parcelable> v) {}
+
+    public int size() {
+        return 0;
+    }
+
+    public String getString(String k) {
+        return null;
+    }
+
+    public void putString(String k, String v) {}
+
+    public void putStringArrayList(String k, java.util.ArrayList<String> v) {}
+
+    public java.util.ArrayList<String> getStringArrayList(String k) {
+        return null;
+    }
+}
@@ -0,0 +1,43 @@
+package android.os;
+
+public class Handler {
+    public Handler() {}
+
+    public Handler(Looper l) {}
+
+    public void handleMessage(Message m) {}
+
+    public boolean post(Runnable r) {
+        return true;
+    }
+
+    public boolean postDelayed(Runnable r, long d) {
+        return true;
+    }
+
+    public void removeCallbacks(Runnable r) {}
+
+    public void removeMessages(int w) {}
+
+    public void removeMessages(int w, Object o) {}
+
+    public boolean hasMessages(int w) {
+        return false;
+    }
+
+    public Message obtainMessage(int w) {
+        return null;
+    }
+
+    public Message obtainMessage(int w, Object o) {
+        return null;
+    }
+
+    public boolean sendMessage(Message m) {
+        return true;
+    }
+
+    public final Looper getLooper() {
+        return null;
+    }
+}
@@ -0,0 +1,8 @@
+package android.os;
+
+public class Message {
+    public int what;
+    public Object obj;
+
+    public void sendToTarget() {}
+}
@@ -0,0 +1,11 @@
+package android.preference;
+
+public abstract class DialogPreference extends Preference {
+    public DialogPreference(android.content.Context c) {
+        super(c);
+    }
+
+    public android.app.Dialog getDialog() {
+        return null;
+    }
+}
@@ -0,0 +1,11 @@
+package android.preference;
+
+public class EditTextPreference extends DialogPreference {
+    public EditTextPreference(android.content.Context c) {
+        super(c);
+    }
+
+    public android.widget.EditText getEditText() {
+        return null;
+    }
+}
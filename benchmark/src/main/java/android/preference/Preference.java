@@ -0,0 +1,153 @@
+package android.preference;
+
+import android.content.*;
+import android.view.*;
+
+public class Preference implements Comparable<Preference> {
+    public interface OnPreferenceChangeListener {
+        boolean onPreferenceChange(Preference p, Object v);
+    }
+
+    public interface OnPreferenceClickListener {
+        boolean onPreferenceClick(Preference p);
+    }
+
+    private String mKey;
+    private String mDependencyKey;
+    private CharSequence mTitle;
+    private PreferenceManager mPreferenceManager;
+
+    public Preference(Context c) {}
+
+    public Preference(Context c, android.util.AttributeSet a) {}
+
+    public String getKey() {
+        return mKey;
+    }
+
+    public void setKey(String k) {
+        mKey = k;
+    }
+
+    public boolean hasKey() {
+        return mKey != null;
+    }
+
+    public String getDependency() {
+        return mDependencyKey;
+    }
+
+    public void setDependency(String d) {
+        mDependencyKey = d;
+    }
+
+    protected void onAttachedToHierarchy(PreferenceManager m) {
+        mPreferenceManager = m;
+    }
+
+    protected void onClick() {}
+
+    public void setEnabled(boolean e) {}
+
+    public boolean isEnabled() {
+        return true;
+    }
+
+    public boolean shouldDisableDependents() {
+        return false;
+    }
+
+    public void notifyDependencyChange(boolean d) {}
+
+    public void onDependencyChanged(Preference d, boolean b) {}
+
+    public int getLayoutResource() {
+        return 0;
+    }
+
+    public int getWidgetLayoutResource() {
+        return 0;
+    }
+
+    public void setLayoutResource(int r) {}
+
+    public void setWidgetLayoutResource(int r) {}
+
+    public View getView(View c, ViewGroup p) {
+        return null;
+    }
+
+    public CharSequence getTitle() {
+        return mTitle;
+    }
+
+    public void setTitle(CharSequence t) {
+        mTitle = t;
+    }
+
+    public CharSequence getSummary() {
+        return null;
+    }
+
+    public void setSummary(CharSequence t) {}
+
+    public boolean isPersistent() {
+        return true;
+    }
+
+    public Intent getIntent() {
+        return null;
+    }
+
+    public void saveHierarchyState(android.os.Bundle b) {}
+
+    public void restoreHierarchyState(android.os.Bundle b) {}
+
+    public long getId() {
+        return 0;
+    }
+
+    public int getOrder() {
+        return 0;
+    }
+
+    public void setOrder(int o) {}
+
+    public Context getContext() {
+        return null;
+    }
+
+    public SharedPreferences getSharedPreferences() {
+        return null;
+    }
+
+    public PreferenceManager getPreferenceManager() {
+        return mPreferenceManager;
+    }
+
+    public int compareTo(Preference p) {
+        return 0;
+    }
+
+    public boolean isSelectable() {
+        return true;
+    }
+
+    public void setOnPreferenceChangeListener(OnPreferenceChangeListener l) {}
+
+    public OnPreferenceChangeListener getOnPreferenceChangeListener() {
+        return null;
+    }
+
+    public void setOnPreferenceClickListener(OnPreferenceClickListener l) {}
+
+    public void setPersistent(boolean p) {}
+
+    public void setShouldDisableView(boolean b) {}
+
+    public boolean getShouldDisableView() {
+        return true;
+    }
+
+    public void setSelectable(boolean b) {}
+}
@@ -0,0 +1,7 @@
+package android.preference;
+
+public class PreferenceCategory extends PreferenceGroup {
+    public PreferenceCategory(android.content.Context c) {
+        super(c, null);
+    }
+}
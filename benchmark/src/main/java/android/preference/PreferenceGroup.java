@@ -0,0 +1,59 @@
+package android.preference;
+
+public abstract class PreferenceGroup extends Preference {
+    private final java.util.ArrayList<Preference> mPreferenceList =
+            new java.util.ArrayList<Preference>();
+
+    public PreferenceGroup(android.content.Context c, android.util.AttributeSet a) {
+        super(c, a);
+    }
+
+    public boolean addPreference(Preference p) {
+        mPreferenceList.add(p);
+        p.onAttachedToHierarchy(getPreferenceManager());
+        return true;
+    }
+
+    public boolean removePreference(Preference p) {
+        return mPreferenceList.remove(p);
+    }
+
+    public void removeAll() {
+        mPreferenceList.clear();
+    }
+
+    protected boolean isOnSameScreenAsChildren() {
+        return true;
+    }
+
+    void sortPreferences() {}
+
+    public int getPreferenceCount() {
+        return mPreferenceList.size();
+    }
+
+    public Preference getPreference(int i) {
+        return mPreferenceList.get(i);
+    }
+
+    public Preference findPreference(CharSequence k) {
+        if (k.equals(getKey())) return this;
+        final int count = getPreferenceCount();
+        for (int i = 0; i < count; i++) {
+            final Preference p = getPreference(i);
+            final String key = p.getKey();
+            if (key != null && key.equals(k)) return p;
+            if (p instanceof PreferenceGroup) {
+                final Preference r = ((PreferenceGroup) p).findPreference(k);
+                if (r != null) return r;
+            }
+        }
+        return null;
+    }
+
+    public void setOrderingAsAdded(boolean b) {}
+
+    public boolean isOrderingAsAdded() {
+        return true;
+    }
+}
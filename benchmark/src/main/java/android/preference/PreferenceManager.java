@@ -0,0 +1,51 @@
+package android.preference;
+
+import android.content.*;
+
+public class PreferenceManager {
+    private PreferenceScreen mPreferenceScreen;
+
+    PreferenceManager(android.app.Activity a, int c) {}
+
+    PreferenceScreen getPreferenceScreen() {
+        return mPreferenceScreen;
+    }
+
+    boolean setPreferences(PreferenceScreen s) {
+        if (s != mPreferenceScreen) {
+            mPreferenceScreen = s;
+            return true;
+        }
+        return false;
+    }
+
+    public static final String METADATA_KEY_PREFERENCES = "android.preference";
+
+    public PreferenceScreen createPreferenceScreen(Context c) {
+        return null;
+    }
+
+    public Preference findPreference(CharSequence k) {
+        return mPreferenceScreen == null ? null : mPreferenceScreen.findPreference(k);
+    }
+
+    public SharedPreferences getSharedPreferences() {
+        return null;
+    }
+
+    public String getSharedPreferencesName() {
+        return null;
+    }
+
+    public void setSharedPreferencesName(String n) {}
+
+    public int getSharedPreferencesMode() {
+        return 0;
+    }
+
+    public void setSharedPreferencesMode(int m) {}
+
+    public static SharedPreferences getDefaultSharedPreferences(Context c) {
+        return null;
+    }
+}
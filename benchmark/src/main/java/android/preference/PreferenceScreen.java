@@ -0,0 +1,19 @@
+package android.preference;
+
+public final class PreferenceScreen extends PreferenceGroup {
+    public PreferenceScreen(android.content.Context c, android.util.AttributeSet a) {
+        super(c, a);
+    }
+
+    public void bind(android.widget.ListView l) {}
+
+    public android.widget.ListAdapter getRootAdapter() {
+        return null;
+    }
+
+    public android.app.Dialog getDialog() {
+        return null;
+    }
+
+    public void onItemClick(android.widget.AdapterView p, android.view.View v, int pos, long id) {}
+}
@@ -0,0 +1,67 @@
+package android.support.v4.app;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.*;
+
+public class Fragment {
+    public void onCreate(Bundle b) {}
+
+    public View onCreateView(LayoutInflater i, ViewGroup c, Bundle b) {
+        return null;
+    }
+
+    public void onActivityCreated(Bundle b) {}
+
+    public void onStart() {}
+
+    public void onStop() {}
+
+    public void onDestroyView() {}
+
+    public void onDestroy() {}
+
+    public void onSaveInstanceState(Bundle b) {}
+
+    public void onActivityResult(int a, int b, Intent c) {}
+
+    public final android.support.v4.app.FragmentActivity getActivity() {
+        return null;
+    }
+
+    public View getView() {
+        return null;
+    }
+
+    public void onAttach(android.app.Activity a) {}
+
+    public void onDetach() {}
+
+    public void setRetainInstance(boolean r) {}
+
+    public final boolean getRetainInstance() {
+        return false;
+    }
+
+    public final Fragment getParentFragment() {
+        return null;
+    }
+
+    public void onConfigurationChanged(android.content.res.Configuration c) {}
+
+    public final boolean isAdded() {
+        return false;
+    }
+
+    public final android.content.res.Resources getResources() {
+        return null;
+    }
+
+    public final Bundle getArguments() {
+        return null;
+    }
+
+    public static Fragment instantiate(android.content.Context c, String n, Bundle a) {
+        return null;
+    }
+}
@@ -0,0 +1,3 @@
+package android.support.v4.app;
+
+public class FragmentActivity extends android.app.Activity {}
@@ -0,0 +1,25 @@
+package android.support.v4.util;
+
+public class ArrayMap<K, V> extends SimpleArrayMap<K, V> implements java.util.Map<K, V> {
+    public boolean containsValue(Object v) {
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return true;
+    }
+
+    public void putAll(java.util.Map<? extends K, ? extends V> m) {}
+
+    public java.util.Set<K> keySet() {
+        return null;
+    }
+
+    public java.util.Collection<V> values() {
+        return null;
+    }
+
+    public java.util.Set<java.util.Map.Entry<K, V>> entrySet() {
+        return null;
+    }
+}
@@ -0,0 +1,33 @@
+package android.support.v4.util;
+
+public class SimpleArrayMap<K, V> {
+    public V get(Object k) {
+        return null;
+    }
+
+    public V put(K k, V v) {
+        return null;
+    }
+
+    public V remove(Object k) {
+        return null;
+    }
+
+    public void clear() {}
+
+    public int size() {
+        return 0;
+    }
+
+    public K keyAt(int i) {
+        return null;
+    }
+
+    public V valueAt(int i) {
+        return null;
+    }
+
+    public boolean containsKey(Object k) {
+        return false;
+    }
+}
@@ -0,0 +1,21 @@
+package android.util;
+
+public interface AttributeSet {
+    int getAttributeCount();
+
+    String getAttributeName(int i);
+
+    String getAttributeValue(int i);
+
+    String getAttributeValue(String ns, String n);
+
+    int getAttributeResourceValue(String ns, String n, int d);
+
+    int getAttributeResourceValue(int i, int d);
+
+    int getAttributeIntValue(int i, int d);
+
+    boolean getAttributeBooleanValue(int i, boolean d);
+
+    int getAttributeNameResource(int i);
+}
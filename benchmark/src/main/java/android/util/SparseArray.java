@@ -0,0 +1,21 @@
+package android.util;
+
+public class SparseArray<E> {
+    public E get(int k) {
+        return null;
+    }
+
+    public void put(int k, E v) {}
+
+    public int size() {
+        return 0;
+    }
+
+    public int keyAt(int i) {
+        return 0;
+    }
+
+    public E valueAt(int i) {
+        return null;
+    }
+}
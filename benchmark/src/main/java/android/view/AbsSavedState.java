@@ -0,0 +1,5 @@
+package android.view;
+
+public abstract class AbsSavedState implements android.os.Parcelable {
+    public static final AbsSavedState EMPTY_STATE = null;
+}
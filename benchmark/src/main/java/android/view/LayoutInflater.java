@@ -0,0 +1,80 @@
+package android.view;
+
+import android.content.Context;
+import android.util.AttributeSet;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Inflates compiled XML like the framework: views are created through their cached (Context,
+ * AttributeSet) constructors, children get layout params generated by their parent from the same
+ * attributes.
+ */
+public abstract class LayoutInflater {
+    private static final HashMap<String, Constructor<? extends View>> sConstructorMap =
+            new HashMap<String, Constructor<? extends View>>();
+
+    private final Context mContext;
+
+    protected LayoutInflater(Context context) {
+        mContext = context;
+    }
+
+    public View inflate(XmlPullParser parser, ViewGroup root, boolean attachToRoot) {
+        final AttributeSet attrs = (AttributeSet) parser;
+        final ArrayList<View> parents = new ArrayList<View>();
+        View result = null;
+        try {
+            int type;
+            while ((type = parser.next()) != XmlPullParser.END_DOCUMENT) {
+                if (type == XmlPullParser.START_TAG) {
+                    View view = createView(parser.getName(), attrs);
+                    if (parents.isEmpty()) {
+                        result = view;
+                    } else {
+                        ViewGroup parent = (ViewGroup) parents.get(parents.size() - 1);
+                        parent.addView(view, parent.generateLayoutParams(attrs));
+                    }
+                    parents.add(view);
+                } else if (type == XmlPullParser.END_TAG) {
+                    parents.remove(parents.size() - 1);
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        if (root != null && attachToRoot) {
+            root.addView(result);
+        }
+        return result;
+    }
+
+    public View inflate(int id, ViewGroup r, boolean a) {
+        return null;
+    }
+
+    public Context getContext() {
+        return mContext;
+    }
+
+    public static LayoutInflater from(Context c) {
+        return new LayoutInflater(c) {};
+    }
+
+    private View createView(String name, AttributeSet attrs) throws Exception {
+        Constructor<? extends View> constructor = sConstructorMap.get(name);
+        if (constructor == null) {
+            String className = name.indexOf('.') < 0 ? "android.widget." + name : name;
+            constructor =
+                    Class.forName(className)
+                            .asSubclass(View.class)
+                            .getConstructor(Context.class, AttributeSet.class);
+            sConstructorMap.put(name, constructor);
+        }
+        return constructor.newInstance(mContext, attrs);
+    }
+}
@@ -0,0 +1,152 @@
+package android.view;
+
+public class View {
+    public static final int SCROLLBARS_INSIDE_OVERLAY = 0;
+    public static final int SCROLLBARS_OUTSIDE_OVERLAY = 0x2000000;
+    public static final int VISIBLE = 0, GONE = 8;
+    public static final int NO_ID = -1;
+
+    private static final int ATTR_ID = 0x010100d0;
+    private static final int ATTR_BACKGROUND = 0x010100d4;
+    private static final int ATTR_PADDING_LEFT = 0x010100d6;
+    private static final int ATTR_PADDING_TOP = 0x010100d7;
+    private static final int ATTR_PADDING_RIGHT = 0x010100d8;
+    private static final int ATTR_PADDING_BOTTOM = 0x010100d9;
+    private static final int ATTR_SCROLLBAR_STYLE = 0x0101007f;
+
+    private final android.content.Context mContext;
+    private int mId = NO_ID;
+    private int mPaddingLeft, mPaddingTop, mPaddingRight, mPaddingBottom;
+    private int mScrollBarStyle;
+    private int mBackgroundColor;
+    private ViewGroup.LayoutParams mLayoutParams;
+    ViewParent mParent;
+
+    public View(android.content.Context c) {
+        mContext = c;
+    }
+
+    /** applies the attributes of View, as obtainStyledAttributes would */
+    public View(android.content.Context c, android.util.AttributeSet attrs) {
+        this(c);
+        final int count = attrs.getAttributeCount();
+        for (int i = 0; i < count; ++i) {
+            switch (attrs.getAttributeNameResource(i)) {
+                case ATTR_ID:
+                    mId = attrs.getAttributeResourceValue(i, NO_ID);
+                    break;
+                case ATTR_BACKGROUND:
+                    mBackgroundColor = attrs.getAttributeResourceValue(i, 0);
+                    break;
+                case ATTR_PADDING_LEFT:
+                    mPaddingLeft = attrs.getAttributeIntValue(i, 0);
+                    break;
+                case ATTR_PADDING_TOP:
+                    mPaddingTop = attrs.getAttributeIntValue(i, 0);
+                    break;
+                case ATTR_PADDING_RIGHT:
+                    mPaddingRight = attrs.getAttributeIntValue(i, 0);
+                    break;
+                case ATTR_PADDING_BOTTOM:
+                    mPaddingBottom = attrs.getAttributeIntValue(i, 0);
+                    break;
+                case ATTR_SCROLLBAR_STYLE:
+                    mScrollBarStyle = attrs.getAttributeIntValue(i, 0);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    public interface OnKeyListener {
+        boolean onKey(View v, int k, KeyEvent e);
+    }
+
+    public interface OnClickListener {
+        void onClick(View v);
+    }
+
+    public View findViewById(int id) {
+        return null;
+    }
+
+    public void setId(int id) {
+        mId = id;
+    }
+
+    public android.view.animation.Animation getAnimation() {
+        return null;
+    }
+
+    public int getId() {
+        return mId;
+    }
+
+    public void setPadding(int l, int t, int r, int b) {
+        mPaddingLeft = l;
+        mPaddingTop = t;
+        mPaddingRight = r;
+        mPaddingBottom = b;
+    }
+
+    public void setScrollBarStyle(int s) {
+        mScrollBarStyle = s;
+    }
+
+    public void setLayoutParams(ViewGroup.LayoutParams p) {
+        mLayoutParams = p;
+    }
+
+    public ViewGroup.LayoutParams getLayoutParams() {
+        return mLayoutParams;
+    }
+
+    public void setOnKeyListener(OnKeyListener l) {}
+
+    public void setBackgroundColor(int c) {
+        mBackgroundColor = c;
+    }
+
+    public boolean post(Runnable r) {
+        return true;
+    }
+
+    public ViewParent getParent() {
+        return mParent;
+    }
+
+    public android.content.Context getContext() {
+        return mContext;
+    }
+
+    public void setVerticalScrollbarPosition(int p) {}
+
+    public void setScrollbarFadingEnabled(boolean b) {}
+
+    public void setTag(int k, Object o) {}
+
+    public Object getTag(int k) {
+        return null;
+    }
+
+    public void setTag(Object o) {}
+
+    public Object getTag() {
+        return null;
+    }
+
+    public void setVisibility(int v) {}
+
+    public void setEnabled(boolean b) {}
+
+    public boolean isEnabled() {
+        return true;
+    }
+
+    public android.content.res.Resources getResources() {
+        return null;
+    }
+
+    public void focusableViewAvailable(View v) {}
+}
@@ -0,0 +1,95 @@
+package android.view;
+
+public abstract class ViewGroup extends View implements ViewParent {
+    private static final int ATTR_CLIP_TO_PADDING = 0x010100eb;
+    private static final int ATTR_LAYOUT_WIDTH = 0x010100f4;
+    private static final int ATTR_LAYOUT_HEIGHT = 0x010100f5;
+
+    private final java.util.ArrayList<View> mChildren = new java.util.ArrayList<View>();
+    private boolean mClipToPadding = true;
+
+    public ViewGroup(android.content.Context c) {
+        super(c);
+    }
+
+    public ViewGroup(android.content.Context c, android.util.AttributeSet attrs) {
+        super(c, attrs);
+        final int count = attrs.getAttributeCount();
+        for (int i = 0; i < count; ++i) {
+            if (attrs.getAttributeNameResource(i) == ATTR_CLIP_TO_PADDING) {
+                mClipToPadding = attrs.getAttributeBooleanValue(i, true);
+            }
+        }
+    }
+
+    public LayoutParams generateLayoutParams(android.util.AttributeSet attrs) {
+        return new LayoutParams(attrs);
+    }
+
+    public static class LayoutParams {
+        public static final int MATCH_PARENT = -1, FILL_PARENT = -1, WRAP_CONTENT = -2;
+        public int width, height;
+
+        public LayoutParams(int w, int h) {
+            width = w;
+            height = h;
+        }
+
+        public LayoutParams(android.util.AttributeSet attrs) {
+            final int count = attrs.getAttributeCount();
+            for (int i = 0; i < count; ++i) {
+                switch (attrs.getAttributeNameResource(i)) {
+                    case ATTR_LAYOUT_WIDTH:
+                        width = attrs.getAttributeIntValue(i, 0);
+                        break;
+                    case ATTR_LAYOUT_HEIGHT:
+                        height = attrs.getAttributeIntValue(i, 0);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    public static class MarginLayoutParams extends LayoutParams {
+        public MarginLayoutParams(int w, int h) {
+            super(w, h);
+        }
+
+        public MarginLayoutParams(android.util.AttributeSet attrs) {
+            super(attrs);
+        }
+    }
+
+    public void addView(View v) {
+        addView(v, v.getLayoutParams());
+    }
+
+    public void addView(View v, LayoutParams p) {
+        if (v.mParent != null) {
+            throw new IllegalStateException("The specified child already has a parent.");
+        }
+        v.setLayoutParams(p);
+        v.mParent = this;
+        mChildren.add(v);
+    }
+
+    public void removeView(View v) {
+        if (mChildren.remove(v)) {
+            v.mParent = null;
+        }
+    }
+
+    public void setClipToPadding(boolean b) {
+        mClipToPadding = b;
+    }
+
+    public int getChildCount() {
+        return mChildren.size();
+    }
+
+    public View getChildAt(int i) {
+        return i < mChildren.size() ? mChildren.get(i) : null;
+    }
+}
@@ -0,0 +1,7 @@
+package android.view.animation;
+
+public abstract class Animation {
+    public boolean hasEnded() {
+        return false;
+    }
+}
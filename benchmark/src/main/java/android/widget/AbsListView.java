@@ -0,0 +1,58 @@
+package android.widget;
+
+public abstract class AbsListView extends AdapterView<ListAdapter> {
+    private static final int ATTR_DRAW_SELECTOR_ON_TOP = 0x010100fc;
+    private static final int ATTR_CACHE_COLOR_HINT = 0x01010101;
+
+    private boolean mDrawSelectorOnTop;
+    private int mCacheColorHint;
+
+    public AbsListView(android.content.Context c) {
+        super(c);
+    }
+
+    public AbsListView(android.content.Context c, android.util.AttributeSet attrs) {
+        super(c, attrs);
+        final int count = attrs.getAttributeCount();
+        for (int i = 0; i < count; ++i) {
+            switch (attrs.getAttributeNameResource(i)) {
+                case ATTR_DRAW_SELECTOR_ON_TOP:
+                    mDrawSelectorOnTop = attrs.getAttributeBooleanValue(i, false);
+                    break;
+                case ATTR_CACHE_COLOR_HINT:
+                    mCacheColorHint = attrs.getAttributeResourceValue(i, 0);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    public void setDrawSelectorOnTop(boolean b) {
+        mDrawSelectorOnTop = b;
+    }
+
+    public void setCacheColorHint(int c) {
+        mCacheColorHint = c;
+    }
+
+    public void setRecyclerListener(RecyclerListener l) {}
+
+    public interface RecyclerListener {
+        void onMovedToScrapHeap(android.view.View v);
+    }
+
+    public interface OnScrollListener {
+        int SCROLL_STATE_IDLE = 0;
+
+        void onScrollStateChanged(AbsListView v, int s);
+
+        void onScroll(AbsListView v, int f, int c, int t);
+    }
+
+    public void setOnScrollListener(OnScrollListener l) {}
+
+    public void setScrollingCacheEnabled(boolean b) {}
+
+    public void invalidateViews() {}
+}
@@ -0,0 +1,25 @@
+package android.widget;
+
+public interface Adapter {
+    int IGNORE_ITEM_VIEW_TYPE = -1;
+
+    int getCount();
+
+    Object getItem(int p);
+
+    long getItemId(int p);
+
+    boolean hasStableIds();
+
+    android.view.View getView(int p, android.view.View c, android.view.ViewGroup g);
+
+    int getItemViewType(int p);
+
+    int getViewTypeCount();
+
+    boolean isEmpty();
+
+    void registerDataSetObserver(android.database.DataSetObserver o);
+
+    void unregisterDataSetObserver(android.database.DataSetObserver o);
+}
@@ -0,0 +1,51 @@
+package android.widget;
+
+public abstract class AdapterView<T extends Adapter> extends android.view.ViewGroup {
+    public static final long INVALID_ROW_ID = Long.MIN_VALUE;
+
+    public int getCount() {
+        return 0;
+    }
+
+    public AdapterView(android.content.Context c) {
+        super(c);
+    }
+
+    public AdapterView(android.content.Context c, android.util.AttributeSet attrs) {
+        super(c, attrs);
+    }
+
+    public interface OnItemClickListener {
+        void onItemClick(AdapterView<?> p, android.view.View v, int pos, long id);
+    }
+
+    public abstract T getAdapter();
+
+    public abstract void setAdapter(T a);
+
+    public Object getSelectedItem() {
+        return null;
+    }
+
+    public android.view.View getSelectedView() {
+        return null;
+    }
+
+    public void setOnItemClickListener(OnItemClickListener l) {}
+
+    public final OnItemClickListener getOnItemClickListener() {
+        return null;
+    }
+
+    public int getFirstVisiblePosition() {
+        return 0;
+    }
+
+    public int getLastVisiblePosition() {
+        return 0;
+    }
+
+    public Object getItemAtPosition(int p) {
+        return null;
+    }
+}
@@ -0,0 +1,35 @@
+package android.widget;
+
+public abstract class BaseAdapter implements ListAdapter {
+    public boolean hasStableIds() {
+        return false;
+    }
+
+    public boolean areAllItemsEnabled() {
+        return true;
+    }
+
+    public boolean isEnabled(int p) {
+        return true;
+    }
+
+    public int getItemViewType(int p) {
+        return 0;
+    }
+
+    public int getViewTypeCount() {
+        return 1;
+    }
+
+    public boolean isEmpty() {
+        return getCount() == 0;
+    }
+
+    public void notifyDataSetChanged() {}
+
+    public void notifyDataSetInvalidated() {}
+
+    public void registerDataSetObserver(android.database.DataSetObserver o) {}
+
+    public void unregisterDataSetObserver(android.database.DataSetObserver o) {}
+}
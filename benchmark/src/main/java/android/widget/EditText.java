@@ -0,0 +1,7 @@
+package android.widget;
+
+public class EditText extends TextView {
+    public EditText(android.content.Context c) {
+        super(c);
+    }
+}
@@ -0,0 +1,56 @@
+package android.widget;
+
+public class LinearLayout extends android.view.ViewGroup {
+    public static final int VERTICAL = 1, HORIZONTAL = 0;
+
+    private static final int ATTR_ORIENTATION = 0x010100c4;
+    private static final int ATTR_LAYOUT_WEIGHT = 0x01010181;
+
+    private int mOrientation;
+
+    public LinearLayout(android.content.Context c) {
+        super(c);
+    }
+
+    public LinearLayout(android.content.Context c, android.util.AttributeSet attrs) {
+        super(c, attrs);
+        final int count = attrs.getAttributeCount();
+        for (int i = 0; i < count; ++i) {
+            if (attrs.getAttributeNameResource(i) == ATTR_ORIENTATION) {
+                mOrientation = attrs.getAttributeIntValue(i, HORIZONTAL);
+            }
+        }
+    }
+
+    public void setOrientation(int o) {
+        mOrientation = o;
+    }
+
+    @Override
+    public LayoutParams generateLayoutParams(android.util.AttributeSet attrs) {
+        return new LayoutParams(attrs);
+    }
+
+    public static class LayoutParams extends android.view.ViewGroup.MarginLayoutParams {
+        public float weight;
+
+        public LayoutParams(int w, int h) {
+            super(w, h);
+        }
+
+        public LayoutParams(int w, int h, float weight) {
+            super(w, h);
+            this.weight = weight;
+        }
+
+        public LayoutParams(android.util.AttributeSet attrs) {
+            super(attrs);
+            final int count = attrs.getAttributeCount();
+            for (int i = 0; i < count; ++i) {
+                if (attrs.getAttributeNameResource(i) == ATTR_LAYOUT_WEIGHT) {
+                    weight = Float.intBitsToFloat(attrs.getAttributeIntValue(i, 0));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package android.widget;
+
+public class ListView extends AbsListView {
+    public void setSelection(int p) {}
+
+    public ListView(android.content.Context c) {
+        super(c);
+    }
+
+    public ListView(android.content.Context c, android.util.AttributeSet attrs) {
+        super(c, attrs);
+    }
+
+    public ListAdapter getAdapter() {
+        return null;
+    }
+
+    public void setAdapter(ListAdapter a) {}
+
+    public void setSelectionFromTop(int p, int y) {}
+
+    public int getHeaderViewsCount() {
+        return 0;
+    }
+}
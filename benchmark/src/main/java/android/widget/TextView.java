@@ -0,0 +1,31 @@
+package android.widget;
+
+public class TextView extends android.view.View {
+    public TextView(android.content.Context c) {
+        super(c);
+    }
+
+    public int getInputType() {
+        return 0;
+    }
+
+    public void setInputType(int t) {}
+
+    public android.text.method.TransformationMethod getTransformationMethod() {
+        return null;
+    }
+
+    public void setTransformationMethod(android.text.method.TransformationMethod m) {}
+
+    public android.text.InputFilter[] getFilters() {
+        return null;
+    }
+
+    public void setFilters(android.text.InputFilter[] f) {}
+
+    public CharSequence getHint() {
+        return null;
+    }
+
+    public void setHint(CharSequence h) {}
+}
@@ -0,0 +1,137 @@
+package me.piebridge.android.preference;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes compiled preference XML as aapt does, for the benchmarks that need a
+ * resource without an Android build: a UTF-16 string pool, the android namespace
+ * and elements whose attributes are all typed strings.
+ */
+final class CompiledXml {
+
+    private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+
+    private final List<String> mStrings = new ArrayList<String>();
+    private final Map<String, Integer> mIndexes = new HashMap<String, Integer>();
+    private final ByteArrayOutputStream mNodes = new ByteArrayOutputStream();
+
+    CompiledXml() {
+        namespace(0x0100);
+    }
+
+    /**
+     * @param attributes android attribute names and values, in pairs
+     */
+    CompiledXml start(String name, String... attributes) {
+        ByteArrayOutputStream ext = new ByteArrayOutputStream();
+        putInt(ext, -1);
+        putInt(ext, index(name));
+        putShort(ext, 20);
+        putShort(ext, 20);
+        putShort(ext, attributes.length / 2);
+        putShort(ext, 0);
+        putShort(ext, 0);
+        putShort(ext, 0);
+        for (int i = 0; i < attributes.length; i += 2) {
+            putInt(ext, index(ANDROID_NS));
+            putInt(ext, index(attributes[i]));
+            putInt(ext, index(attributes[i + 1]));
+            putShort(ext, 8);
+            ext.write(0);
+            ext.write(0x03);
+            putInt(ext, index(attributes[i + 1]));
+        }
+        node(0x0102, ext.toByteArray());
+        return this;
+    }
+
+    CompiledXml end(String name) {
+        ByteArrayOutputStream ext = new ByteArrayOutputStream();
+        putInt(ext, -1);
+        putInt(ext, index(name));
+        node(0x0103, ext.toByteArray());
+        return this;
+    }
+
+    byte[] toByteArray() {
+        namespace(0x0101);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int[] offsets = new int[mStrings.size()];
+        for (int i = 0; i < offsets.length; ++i) {
+            String string = mStrings.get(i);
+            offsets[i] = data.size();
+            putShort(data, string.length());
+            for (int j = 0; j < string.length(); ++j) {
+                putShort(data, string.charAt(j));
+            }
+            putShort(data, 0);
+        }
+        while (data.size() % 4 != 0) {
+            data.write(0);
+        }
+        final int headerSize = 28;
+        final int stringsStart = headerSize + 4 * offsets.length;
+        ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        putShort(pool, 0x0001);
+        putShort(pool, headerSize);
+        putInt(pool, stringsStart + data.size());
+        putInt(pool, offsets.length);
+        putInt(pool, 0);
+        putInt(pool, 0);
+        putInt(pool, stringsStart);
+        putInt(pool, 0);
+        for (int offset : offsets) {
+            putInt(pool, offset);
+        }
+        pool.write(data.toByteArray(), 0, data.size());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        putShort(out, 0x0003);
+        putShort(out, 8);
+        putInt(out, 8 + pool.size() + mNodes.size());
+        out.write(pool.toByteArray(), 0, pool.size());
+        out.write(mNodes.toByteArray(), 0, mNodes.size());
+        return out.toByteArray();
+    }
+
+    private void namespace(int type) {
+        ByteArrayOutputStream ext = new ByteArrayOutputStream();
+        putInt(ext, index("android"));
+        putInt(ext, index(ANDROID_NS));
+        node(type, ext.toByteArray());
+    }
+
+    private void node(int type, byte[] ext) {
+        putShort(mNodes, type);
+        putShort(mNodes, 16);
+        putInt(mNodes, 16 + ext.length);
+        putInt(mNodes, 1);
+        putInt(mNodes, -1);
+        mNodes.write(ext, 0, ext.length);
+    }
+
+    private int index(String string) {
+        Integer index = mIndexes.get(string);
+        if (index == null) {
+            index = mStrings.size();
+            mStrings.add(string);
+            mIndexes.put(string, index);
+        }
+        return index;
+    }
+
+    private static void putShort(ByteArrayOutputStream out, int value) {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+    }
+
+    private static void putInt(ByteArrayOutputStream out, int value) {
+        putShort(out, value & 0xffff);
+        putShort(out, (value >> 16) & 0xffff);
+    }
+
+}
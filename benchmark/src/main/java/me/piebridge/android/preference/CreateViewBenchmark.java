@@ -0,0 +1,84 @@
+package me.piebridge.android.preference;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlpull.v1.XmlPullParser;
+
+import android.app.Activity;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.ListView;
+
+/**
+ * The two ways {@link PreferenceFragment#onCreateView} builds its root: inflating
+ * {@link PreferenceFragment#LAYOUT}, with the XmlBlock cached or created first, and
+ * {@link PreferenceFragment#createLayout} with {@code useProgrammaticLayout()}.
+ * <p>
+ * The stub views only apply the attributes of the layout, so this measures what
+ * the XML path adds on top of constructing the same views: walking the parser,
+ * reflective construction and attribute lookups. Measure on a device through
+ * {@code PHASE_CREATE_VIEW} for the cost including real views.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreateViewBenchmark {
+
+    private Activity mActivity;
+    private LayoutInflater mInflater;
+
+    @Setup
+    public void setUp() {
+        mActivity = new Activity();
+        mInflater = LayoutInflater.from(mActivity);
+        check(inflateCached());
+        check(createLayout());
+    }
+
+    private static void check(View root) {
+        if (!(root instanceof LinearLayout) || ((ViewGroup) root).getChildCount() != 1) {
+            throw new IllegalStateException("unexpected root " + root);
+        }
+        View list = ((ViewGroup) root).getChildAt(0);
+        if (!(list instanceof ListView) || list.getId() != android.R.id.list) {
+            throw new IllegalStateException("unexpected list " + list);
+        }
+    }
+
+    @Benchmark
+    public View inflateCold() {
+        PreferenceFragment.clearParserCache();
+        return inflateCached();
+    }
+
+    @Benchmark
+    public View inflateCached() {
+        XmlPullParser parser = PreferenceFragment.getParser(PreferenceFragment.LAYOUT);
+        try {
+            return mInflater.inflate(parser, null, false);
+        } finally {
+            PreferenceFragment.closeParser(parser);
+        }
+    }
+
+    @Benchmark
+    public View createLayout() {
+        return PreferenceFragment.createLayout(mActivity);
+    }
+
+}
@@ -0,0 +1,90 @@
+package me.piebridge.android.preference;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import android.app.Activity;
+import android.preference.Preference;
+import android.preference.PreferenceCategory;
+import android.preference.PreferenceManager;
+import android.preference.PreferenceScreen;
+
+/**
+ * Cost of {@link PreferenceFragment#findPreference(CharSequence)} with its key index
+ * against the tree walk of {@link PreferenceManager#findPreference(CharSequence)},
+ * for a key near the end of a hierarchy of categories or of a flat screen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FindPreferenceBenchmark {
+
+    @Param({"100", "1000"})
+    int preferences;
+
+    /**
+     * preferences per category, as many as there are for a flat screen
+     */
+    @Param({"20", "1000"})
+    int perCategory;
+
+    private PreferenceFragment mFragment;
+    private PreferenceManager mPreferenceManager;
+    private String mKey;
+
+    public static class Fragment extends PreferenceFragment {
+    }
+
+    @Setup
+    public void setUp() {
+        Activity activity = new Activity();
+        mPreferenceManager = PreferenceFragment.callConstructor(PreferenceManager.class,
+            new Class[] { Activity.class, int.class }, new Object[] { activity, 100 });
+        mFragment = new Fragment();
+        PreferenceFragment.setField(mFragment, PreferenceFragment.class, "mPreferenceManager",
+            mPreferenceManager);
+
+        PreferenceScreen screen = new PreferenceScreen(activity, null);
+        PreferenceCategory category = null;
+        for (int i = 0; i < preferences; ++i) {
+            if (i % perCategory == 0) {
+                category = new PreferenceCategory(activity);
+                category.setKey("category_" + i / perCategory);
+                screen.addPreference(category);
+            }
+            Preference preference = new Preference(activity);
+            preference.setKey("preference_" + i);
+            category.addPreference(preference);
+        }
+        mFragment.setPreferenceScreen(screen);
+        mKey = "preference_" + (preferences - 1);
+        if (mFragment.findPreference(mKey) != mPreferenceManager.findPreference(mKey)) {
+            throw new IllegalStateException("lookups disagree");
+        }
+    }
+
+    @Benchmark
+    public Object fragment() {
+        return mFragment.findPreference(mKey);
+    }
+
+    @Benchmark
+    public Object preferenceManager() {
+        return mPreferenceManager.findPreference(mKey);
+    }
+
+}
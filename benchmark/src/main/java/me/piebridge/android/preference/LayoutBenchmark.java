@@ -0,0 +1,41 @@
+package me.piebridge.android.preference;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlpull.v1.XmlPullParser;
+
+/**
+ * Cost of {@link PreferenceFragment#getParser(String)} for the embedded
+ * {@link PreferenceFragment#LAYOUT}: the first call of the process decodes it
+ * and creates the XmlBlock, later calls only open a parser on the cached block.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayoutBenchmark {
+
+    @Benchmark
+    public XmlPullParser getParserCold() {
+        PreferenceFragment.clearParserCache();
+        XmlPullParser parser = PreferenceFragment.getParser(PreferenceFragment.LAYOUT);
+        PreferenceFragment.closeParser(parser);
+        return parser;
+    }
+
+    @Benchmark
+    public XmlPullParser getParserCached() {
+        XmlPullParser parser = PreferenceFragment.getParser(PreferenceFragment.LAYOUT);
+        PreferenceFragment.closeParser(parser);
+        return parser;
+    }
+
+}
@@ -0,0 +1,64 @@
+package me.piebridge.android.preference;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of splitting a compiled resource with nested screens for lazy inflation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LazyXmlBenchmark {
+
+    @Param({"4", "32"})
+    int screens;
+
+    @Param({"16"})
+    int preferences;
+
+    private byte[] mData;
+
+    @Setup
+    public void setUp() {
+        CompiledXml xml = new CompiledXml().start("PreferenceScreen");
+        for (int i = 0; i < screens; ++i) {
+            xml.start("PreferenceScreen", "key", "screen_" + i);
+            for (int j = 0; j < preferences; ++j) {
+                String key = "preference_" + i + "_" + j;
+                if (j == 0) {
+                    xml.start("CheckBoxPreference", "key", key);
+                } else {
+                    xml.start("CheckBoxPreference", "key", key, "dependency", "preference_" + i + "_0");
+                }
+                xml.end("CheckBoxPreference");
+            }
+            xml.end("PreferenceScreen");
+        }
+        mData = xml.end("PreferenceScreen").toByteArray();
+        LazyPreferenceXml.Document document = LazyPreferenceXml.split(mData);
+        if (document == null || document.screens.size() != screens) {
+            throw new IllegalStateException("resource not split");
+        }
+    }
+
+    @Benchmark
+    public LazyPreferenceXml.Document split() {
+        return LazyPreferenceXml.split(mData);
+    }
+
+}
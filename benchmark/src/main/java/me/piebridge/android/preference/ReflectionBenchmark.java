@@ -0,0 +1,65 @@
+package me.piebridge.android.preference;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import android.app.Activity;
+import android.preference.PreferenceManager;
+import android.preference.PreferenceScreen;
+
+/**
+ * Cost of calling a hidden {@link PreferenceManager} method, looked up on every
+ * call as before the member cache, and through {@link PreferenceFragment}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReflectionBenchmark {
+
+    private PreferenceManager mPreferenceManager;
+
+    @Setup
+    public void setUp() {
+        mPreferenceManager = PreferenceFragment.callConstructor(PreferenceManager.class,
+            new Class[] { Activity.class, int.class }, new Object[] { new Activity(), 100 });
+        mPreferenceManager.setSharedPreferencesName("benchmark");
+    }
+
+    @Benchmark
+    public Object uncachedLookup() throws Exception {
+        Method method = PreferenceManager.class.getDeclaredMethod("getPreferenceScreen");
+        method.setAccessible(true);
+        return method.invoke(mPreferenceManager);
+    }
+
+    @Benchmark
+    public Object cachedLookup() {
+        return PreferenceFragment.getMethod(PreferenceManager.class, "getPreferenceScreen", null);
+    }
+
+    @Benchmark
+    public Object cachedCall() {
+        return PreferenceFragment.callReturnMethod(mPreferenceManager, "getPreferenceScreen",
+            PreferenceScreen.class, null, null);
+    }
+
+    @Benchmark
+    public Object directCall() {
+        return mPreferenceManager.getSharedPreferencesName();
+    }
+
+}
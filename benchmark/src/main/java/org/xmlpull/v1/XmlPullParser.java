@@ -0,0 +1,13 @@
+package org.xmlpull.v1;
+
+public interface XmlPullParser {
+    int START_DOCUMENT = 0, END_DOCUMENT = 1, START_TAG = 2, END_TAG = 3, TEXT = 4;
+
+    int next() throws XmlPullParserException, java.io.IOException;
+
+    String getName();
+
+    int getDepth();
+
+    String getAttributeValue(String ns, String n);
+}
@@ -0,0 +1,3 @@
+package org.xmlpull.v1;
+
+public class XmlPullParserException extends Exception {}
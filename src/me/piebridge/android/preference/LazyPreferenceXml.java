@@ -0,0 +1,392 @@
+/*
+ * Copyright (C) 2026 The preference-fragment-compat Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.piebridge.android.preference;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits compiled preference XML so nested {@link android.preference.PreferenceScreen}
+ * elements can be inflated on demand.
+ * <p>
+ * {@link #split(byte[])} returns the document with the children of every nested
+ * screen removed, plus one standalone document per removed subtree, rooted at the
+ * nested screen itself. A nested screen is kept inline when a preference outside
+ * of it depends on one of its keys, when its children are only {@code <intent>}
+ * elements, which must be set before it is clicked, or when keys or dependencies
+ * are resource references that cannot be resolved here. Documents using {@code android:order} or
+ * {@code android:orderingFromXml} are not split, as their preferences may not be
+ * added in document order.
+ */
+final class LazyPreferenceXml {
+
+    private static final int RES_STRING_POOL_TYPE = 0x0001;
+    private static final int RES_XML_TYPE = 0x0003;
+    private static final int RES_XML_START_NAMESPACE_TYPE = 0x0100;
+    private static final int RES_XML_END_NAMESPACE_TYPE = 0x0101;
+    private static final int RES_XML_START_ELEMENT_TYPE = 0x0102;
+    private static final int RES_XML_END_ELEMENT_TYPE = 0x0103;
+
+    private static final int UTF8_FLAG = 1 << 8;
+    private static final int TYPE_STRING = 0x03;
+
+    private static final String PREFERENCE_SCREEN = "PreferenceScreen";
+    private static final String PREFERENCE_SCREEN_CLASS = "android.preference.PreferenceScreen";
+    private static final String TAG_INTENT = "intent";
+    private static final String TAG_EXTRA = "extra";
+    private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+    private static final String ATTR_KEY = "key";
+    private static final String ATTR_DEPENDENCY = "dependency";
+    private static final String ATTR_ORDER = "order";
+    private static final String ATTR_ORDERING_FROM_XML = "orderingFromXml";
+
+    /**
+     * Placeholder for a key or dependency given as a resource reference.
+     */
+    static final String UNKNOWN = new String("?");
+
+    private LazyPreferenceXml() {
+    }
+
+    static final class Document {
+        /** compiled XML with the children of nested screens removed */
+        byte[] data;
+        /** nested screens left in {@link #data} in document order, null if inline */
+        List<Screen> screens = new ArrayList<Screen>();
+    }
+
+    static final class Screen {
+        /** key of the nested screen, null if none */
+        String key;
+        /** compiled XML rooted at the nested screen */
+        byte[] data;
+        /** keys below the nested screen, may contain {@link #UNKNOWN} */
+        Set<String> keys = new HashSet<String>();
+    }
+
+    private static final class Element {
+        int start;
+        int end;
+        int depth;
+        boolean screen;
+        boolean intent;
+        String key;
+        String dependency;
+        boolean ordered;
+    }
+
+    private static final class Candidate {
+        Element element;
+        int endChunk;
+        boolean preferences;
+        final Set<String> keys = new HashSet<String>();
+    }
+
+    /**
+     * @param data compiled XML of a preference resource
+     * @return split document, or null if nothing can be deferred or the data is not understood
+     */
+    static Document split(byte[] data) {
+        try {
+            return doSplit(data);
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static Document doSplit(byte[] data) {
+        if (getShort(data, 0) != RES_XML_TYPE) {
+            return null;
+        }
+        final int headerSize = getShort(data, 2);
+        final int total = Math.min(getInt(data, 4), data.length);
+
+        // string pool and resource map, everything before the first namespace or element
+        String[] strings = null;
+        int prologueEnd = headerSize;
+        while (prologueEnd < total) {
+            int type = getShort(data, prologueEnd);
+            if (type >= RES_XML_START_NAMESPACE_TYPE && type <= 0x017f) {
+                break;
+            }
+            if (type == RES_STRING_POOL_TYPE) {
+                strings = readStrings(data, prologueEnd);
+            }
+            prologueEnd += getInt(data, prologueEnd + 4);
+        }
+        if (strings == null) {
+            return null;
+        }
+
+        // chunk offsets and elements
+        List<Integer> chunks = new ArrayList<Integer>();
+        List<Element> elements = new ArrayList<Element>();
+        List<Element> stack = new ArrayList<Element>();
+        for (int offset = prologueEnd; offset < total; offset += getInt(data, offset + 4)) {
+            int type = getShort(data, offset);
+            chunks.add(offset);
+            if (type == RES_XML_START_ELEMENT_TYPE) {
+                Element element = readElement(data, offset, strings);
+                if (element.ordered) {
+                    return null;
+                }
+                element.start = chunks.size() - 1;
+                element.depth = stack.size() + 1;
+                stack.add(element);
+                elements.add(element);
+            } else if (type == RES_XML_END_ELEMENT_TYPE) {
+                if (stack.isEmpty()) {
+                    return null;
+                }
+                stack.remove(stack.size() - 1).end = chunks.size() - 1;
+            }
+        }
+        if (!stack.isEmpty()) {
+            return null;
+        }
+        chunks.add(total);
+
+        // outermost nested screens with children
+        List<Candidate> candidates = new ArrayList<Candidate>();
+        Candidate current = null;
+        for (Element element : elements) {
+            if (current != null && element.start < current.endChunk) {
+                if (element.key != null) {
+                    current.keys.add(element.key);
+                }
+                if (!element.intent) {
+                    current.preferences = true;
+                }
+                continue;
+            }
+            current = null;
+            if (element.screen && element.depth >= 2 && element.end > element.start + 1
+                    && element.key != UNKNOWN) {
+                current = new Candidate();
+                current.element = element;
+                current.endChunk = element.end;
+                candidates.add(current);
+            }
+        }
+
+        // keep screens inline when there is nothing but the intent to defer
+        for (int i = candidates.size() - 1; i >= 0; --i) {
+            if (!candidates.get(i).preferences) {
+                candidates.remove(i);
+            }
+        }
+
+        // keep screens inline when something outside depends on them
+        for (Element element : elements) {
+            if (element.dependency == null) {
+                continue;
+            }
+            if (element.dependency == UNKNOWN) {
+                return null;
+            }
+            for (int i = candidates.size() - 1; i >= 0; --i) {
+                Candidate candidate = candidates.get(i);
+                boolean inside = element.start > candidate.element.start && element.start < candidate.endChunk;
+                if (!inside && (candidate.keys.contains(element.dependency) || candidate.keys.contains(UNKNOWN))) {
+                    candidates.remove(i);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        Document document = new Document();
+        ByteArrayOutputStream top = new ByteArrayOutputStream(total);
+        top.write(data, 0, prologueEnd);
+        int next = 0;
+        int skip = -1;
+        int index = 0;
+        for (Element element : elements) {
+            if (element.start < skip || !element.screen || element.depth < 2) {
+                continue;
+            }
+            Candidate candidate = index < candidates.size() ? candidates.get(index) : null;
+            if (candidate == null || candidate.element != element) {
+                document.screens.add(null);
+                continue;
+            }
+            ++index;
+            // up to and including the start of the nested screen, then its end
+            write(top, data, chunks, next, element.start + 1);
+            next = element.end;
+            skip = element.end;
+
+            Screen screen = new Screen();
+            screen.key = element.key;
+            screen.keys = candidate.keys;
+            screen.data = extract(data, prologueEnd, chunks, element.start, element.end);
+            document.screens.add(screen);
+        }
+        write(top, data, chunks, next, chunks.size() - 1);
+        document.data = finish(top);
+        return document;
+    }
+
+    private static byte[] extract(byte[] data, int prologueEnd, List<Integer> chunks, int start, int end) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(data, 0, prologueEnd);
+        List<Integer> namespaces = new ArrayList<Integer>();
+        for (int i = 0; i < start; ++i) {
+            int type = getShort(data, chunks.get(i));
+            if (type == RES_XML_START_NAMESPACE_TYPE) {
+                namespaces.add(i);
+            } else if (type == RES_XML_END_NAMESPACE_TYPE && !namespaces.isEmpty()) {
+                namespaces.remove(namespaces.size() - 1);
+            }
+        }
+        for (int i : namespaces) {
+            write(out, data, chunks, i, i + 1);
+        }
+        write(out, data, chunks, start, end + 1);
+        for (int i = namespaces.size() - 1; i >= 0; --i) {
+            // END_NAMESPACE carries the same prefix and uri as its START_NAMESPACE
+            int offset = chunks.get(namespaces.get(i));
+            int size = getInt(data, offset + 4);
+            byte[] chunk = new byte[size];
+            System.arraycopy(data, offset, chunk, 0, size);
+            chunk[0] = (byte) (RES_XML_END_NAMESPACE_TYPE & 0xff);
+            chunk[1] = (byte) (RES_XML_END_NAMESPACE_TYPE >> 8);
+            out.write(chunk, 0, size);
+        }
+        return finish(out);
+    }
+
+    private static void write(ByteArrayOutputStream out, byte[] data, List<Integer> chunks, int from, int to) {
+        if (to > from) {
+            int start = chunks.get(from);
+            out.write(data, start, chunks.get(to) - start);
+        }
+    }
+
+    private static byte[] finish(ByteArrayOutputStream out) {
+        byte[] result = out.toByteArray();
+        putInt(result, 4, result.length);
+        return result;
+    }
+
+    private static Element readElement(byte[] data, int offset, String[] strings) {
+        Element element = new Element();
+        final int ext = offset + getShort(data, offset + 2);
+        String name = getString(strings, getInt(data, ext + 4));
+        element.screen = PREFERENCE_SCREEN.equals(name) || PREFERENCE_SCREEN_CLASS.equals(name);
+        element.intent = TAG_INTENT.equals(name) || TAG_EXTRA.equals(name);
+        final int attributeStart = getShort(data, ext + 8);
+        final int attributeSize = getShort(data, ext + 10);
+        final int attributeCount = getShort(data, ext + 12);
+        for (int i = 0; i < attributeCount; ++i) {
+            int attribute = ext + attributeStart + i * attributeSize;
+            if (!ANDROID_NS.equals(getString(strings, getInt(data, attribute)))) {
+                continue;
+            }
+            String attributeName = getString(strings, getInt(data, attribute + 4));
+            if (ATTR_KEY.equals(attributeName)) {
+                element.key = readValue(data, attribute, strings);
+            } else if (ATTR_DEPENDENCY.equals(attributeName)) {
+                element.dependency = readValue(data, attribute, strings);
+            } else if (ATTR_ORDER.equals(attributeName) || ATTR_ORDERING_FROM_XML.equals(attributeName)) {
+                element.ordered = true;
+            }
+        }
+        return element;
+    }
+
+    private static String readValue(byte[] data, int attribute, String[] strings) {
+        int rawValue = getInt(data, attribute + 8);
+        if (rawValue >= 0) {
+            return getString(strings, rawValue);
+        }
+        if ((data[attribute + 15] & 0xff) == TYPE_STRING) {
+            return getString(strings, getInt(data, attribute + 16));
+        }
+        return UNKNOWN;
+    }
+
+    private static String getString(String[] strings, int index) {
+        return index >= 0 && index < strings.length ? strings[index] : null;
+    }
+
+    private static String[] readStrings(byte[] data, int offset) {
+        final int headerSize = getShort(data, offset + 2);
+        final int count = getInt(data, offset + 8);
+        final boolean utf8 = (getInt(data, offset + 16) & UTF8_FLAG) != 0;
+        final int stringsStart = offset + getInt(data, offset + 20);
+        String[] strings = new String[count];
+        for (int i = 0; i < count; ++i) {
+            int position = stringsStart + getInt(data, offset + headerSize + i * 4);
+            strings[i] = utf8 ? readUtf8(data, position) : readUtf16(data, position);
+        }
+        return strings;
+    }
+
+    private static String readUtf8(byte[] data, int position) {
+        // character count, then byte count, each one or two bytes
+        position += (data[position] & 0x80) != 0 ? 2 : 1;
+        int length = data[position] & 0xff;
+        if ((length & 0x80) != 0) {
+            length = ((length & 0x7f) << 8) | (data[position + 1] & 0xff);
+            position += 2;
+        } else {
+            position += 1;
+        }
+        try {
+            return new String(data, position, length, "UTF-8");
+        } catch (java.io.UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String readUtf16(byte[] data, int position) {
+        int length = getShort(data, position);
+        if ((length & 0x8000) != 0) {
+            length = ((length & 0x7fff) << 16) | getShort(data, position + 2);
+            position += 4;
+        } else {
+            position += 2;
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; ++i) {
+            chars[i] = (char) getShort(data, position + i * 2);
+        }
+        return new String(chars);
+    }
+
+    private static int getShort(byte[] data, int offset) {
+        return (data[offset] & 0xff) | ((data[offset + 1] & 0xff) << 8);
+    }
+
+    private static int getInt(byte[] data, int offset) {
+        return (data[offset] & 0xff) | ((data[offset + 1] & 0xff) << 8)
+            | ((data[offset + 2] & 0xff) << 16) | ((data[offset + 3] & 0xff) << 24);
+    }
+
+    private static void putInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) value;
+        data[offset + 1] = (byte) (value >> 8);
+        data[offset + 2] = (byte) (value >> 16);
+        data[offset + 3] = (byte) (value >> 24);
+    }
+
+}
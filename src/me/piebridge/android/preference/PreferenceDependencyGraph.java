@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2026 The preference-fragment-compat Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.piebridge.android.preference;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.preference.Preference;
+import android.preference.PreferenceGroup;
+
+/**
+ * Dependencies between the preferences of a hierarchy, resolved by key in one pass.
+ * <p>
+ * The framework resolves android:dependency when each preference is attached to
+ * the activity, looking the key up in the whole hierarchy for every dependent.
+ * Here the keys are hidden from the framework while the hierarchy is attached
+ * (see {@link #detachKeys()}), then the resolved dependents are added to those
+ * of each dependency and the initial states applied with change notifications
+ * suppressed (see {@link #attach()}), so the caller refreshes the list once.
+ * Dependencies not found in the hierarchy are left to the framework.
+ */
+class PreferenceDependencyGraph {
+
+    /**
+     * dependents of each dependency, in preorder of the dependencies
+     */
+    private final LinkedHashMap<Preference, ArrayList<Preference>> mDependents =
+        new LinkedHashMap<Preference, ArrayList<Preference>>();
+
+    /**
+     * dependency key of each dependent
+     */
+    private final IdentityHashMap<Preference, String> mKeys = new IdentityHashMap<Preference, String>();
+
+    PreferenceDependencyGraph(PreferenceGroup root) {
+        HashMap<String, Preference> preferences = new HashMap<String, Preference>();
+        ArrayList<Preference> dependents = new ArrayList<Preference>();
+        collect(root, preferences, dependents);
+        for (Preference dependent : dependents) {
+            String key = dependent.getDependency();
+            Preference dependency = preferences.get(key);
+            if (dependency == null) {
+                // keep the key, Preference.registerDependency reports it when attached
+                continue;
+            }
+            ArrayList<Preference> list = mDependents.get(dependency);
+            if (list == null) {
+                list = new ArrayList<Preference>();
+                mDependents.put(dependency, list);
+            }
+            list.add(dependent);
+            mKeys.put(dependent, key);
+        }
+    }
+
+    /**
+     * index keys in preorder, the first preference of a key wins like findPreference
+     */
+    private static void collect(PreferenceGroup group, Map<String, Preference> preferences,
+            List<Preference> dependents) {
+        final int count = group.getPreferenceCount();
+        for (int i = 0; i < count; ++i) {
+            Preference preference = group.getPreference(i);
+            String key = preference.getKey();
+            if (key != null && !preferences.containsKey(key)) {
+                preferences.put(key, preference);
+            }
+            if (preference.getDependency() != null) {
+                dependents.add(preference);
+            }
+            if (preference instanceof PreferenceGroup) {
+                collect((PreferenceGroup) preference, preferences, dependents);
+            }
+        }
+    }
+
+    /**
+     * Hides the dependency keys, so attaching the hierarchy does not resolve them.
+     */
+    void detachKeys() {
+        for (Preference dependent : mKeys.keySet()) {
+            // FIXME: dependent.mDependencyKey = null;
+            PreferenceFragment.setField(dependent, Preference.class, "mDependencyKey", null);
+        }
+    }
+
+    /**
+     * Restores the keys, adds the dependents not registered yet and applies the
+     * dependency state without notifying any listener.
+     */
+    void attach() {
+        for (Map.Entry<Preference, String> entry : mKeys.entrySet()) {
+            // FIXME: dependent.mDependencyKey = key;
+            PreferenceFragment.setField(entry.getKey(), Preference.class, "mDependencyKey", entry.getValue());
+        }
+        IdentityHashMap<Preference, Object> listeners = new IdentityHashMap<Preference, Object>();
+        for (Preference dependent : mKeys.keySet()) {
+            // FIXME: listeners.put(dependent, dependent.mListener);
+            listeners.put(dependent, PreferenceFragment.getField(dependent, Preference.class, "mListener"));
+            PreferenceFragment.setField(dependent, Preference.class, "mListener", null);
+        }
+        try {
+            for (Map.Entry<Preference, ArrayList<Preference>> entry : mDependents.entrySet()) {
+                addDependents(entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<Preference, ArrayList<Preference>> entry : mDependents.entrySet()) {
+                Preference dependency = entry.getKey();
+                for (Preference dependent : entry.getValue()) {
+                    dependent.onDependencyChanged(dependency, dependency.shouldDisableDependents());
+                }
+            }
+        } finally {
+            for (Map.Entry<Preference, Object> entry : listeners.entrySet()) {
+                PreferenceFragment.setField(entry.getKey(), Preference.class, "mListener", entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * add to the dependents of dependency, which may have registered some already
+     */
+    @SuppressWarnings("unchecked")
+    private static void addDependents(Preference dependency, List<Preference> dependents) {
+        // FIXME: List<Preference> registered = dependency.mDependents;
+        List<Preference> registered = (List<Preference>) PreferenceFragment.getField(dependency,
+            Preference.class, "mDependents");
+        if (registered == null) {
+            // FIXME: dependency.mDependents = new ArrayList<Preference>(dependents);
+            PreferenceFragment.setField(dependency, Preference.class, "mDependents",
+                new ArrayList<Preference>(dependents));
+            return;
+        }
+        for (Preference dependent : dependents) {
+            if (!registered.contains(dependent)) {
+                registered.add(dependent);
+            }
+        }
+    }
+
+}
@@ -16,32 +16,73 @@
 
 package me.piebridge.android.preference;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.xmlpull.v1.XmlPullParser;
 import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.support.v4.app.Fragment;
+import android.support.v4.util.LruCache;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.database.DataSetObserver;
+import android.graphics.Color;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.os.Parcelable;
+import android.os.Process;
+import android.preference.DialogPreference;
+import android.preference.EditTextPreference;
 import android.preference.Preference;
 import android.preference.PreferenceGroup;
 import android.preference.PreferenceManager;
 import android.preference.PreferenceScreen;
 import android.util.Base64;
+import android.util.Log;
+import android.view.AbsSavedState;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.View.OnKeyListener;
+import android.widget.BaseAdapter;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.ListAdapter;
 import android.widget.ListView;
 
 /**
@@ -116,8 +157,16 @@ import android.widget.ListView;
  */
 public abstract class PreferenceFragment extends Fragment {
 
+    private static final String TAG = "PreferenceFragment";
+
     private static final String PREFERENCES_TAG = "android:preferences";
 
+    /**
+     * Fragment argument with the key of a preference to navigate to when the
+     * fragment is first shown, see {@link #navigateToPreference(CharSequence)}.
+     */
+    public static final String ARG_PREFERENCE_KEY = "me.piebridge.android.preference.KEY";
+
     private PreferenceManager mPreferenceManager;
     private ListView mList;
     private boolean mHavePrefs;
@@ -129,6 +178,7 @@ public abstract class PreferenceFragment extends Fragment {
     private static final int FIRST_REQUEST_CODE = 100;
 
     private static final int MSG_BIND_PREFERENCES = 1;
+    private static final int MSG_ADD_PREFERENCES = 2;
     @SuppressLint("HandlerLeak")
     private Handler mHandler = new Handler() {
         @Override
@@ -138,6 +188,10 @@ public abstract class PreferenceFragment extends Fragment {
                 case MSG_BIND_PREFERENCES:
                     bindPreferences();
                     break;
+
+                case MSG_ADD_PREFERENCES:
+                    onInflateTaskDone((InflateTask) msg.obj);
+                    break;
             }
         }
     };
@@ -163,6 +217,61 @@ public abstract class PreferenceFragment extends Fragment {
         boolean onPreferenceStartFragment(PreferenceFragment caller, Preference pref);
     }
 
+    /** Timing of {@link #getParser(String)}. */
+    public static final int PHASE_GET_PARSER = 1;
+    /** Timing of {@link #onCreateView}. */
+    public static final int PHASE_CREATE_VIEW = 2;
+    /** Timing of inflating one preference XML resource. */
+    public static final int PHASE_INFLATE = 3;
+    /** Timing of installing a hierarchy via PreferenceManager.setPreferences. */
+    public static final int PHASE_SET_PREFERENCES = 4;
+    /** Timing of binding the hierarchy to the list. */
+    public static final int PHASE_BIND = 5;
+    /** Timing of one reflective method or constructor invocation. */
+    public static final int PHASE_REFLECTIVE_CALL = 6;
+    /** Timing of getting one row view with incremental binding. */
+    public static final int PHASE_GET_VIEW = 7;
+
+    /**
+     * Interface to receive timing and reflection events from all
+     * PreferenceFragment instances, see {@link #setMetricsListener(MetricsListener)}.
+     * Callbacks run on the thread doing the work and should return quickly.
+     */
+    public interface MetricsListener {
+        /**
+         * Called when a phase finishes.
+         *
+         * @param phase One of the PHASE_ constants.
+         * @param name Member name for {@link #PHASE_REFLECTIVE_CALL}, preference class name
+         *        for {@link #PHASE_GET_VIEW} when the row view was not recycled, otherwise null.
+         * @param durationNanos Elapsed time from {@link System#nanoTime()}.
+         */
+        void onTiming(int phase, String name, long durationNanos);
+
+        /**
+         * Called when a class, method or constructor is resolved by reflection,
+         * which happens once per member and process.
+         */
+        void onReflectionLookup(String name, boolean found);
+
+        /**
+         * Called when a reflective invocation fails.
+         */
+        void onReflectionFailure(String name, Throwable throwable);
+    }
+
+    private static volatile MetricsListener sMetricsListener;
+
+    /**
+     * Installs the process-wide metrics listener. Without a listener, no timing
+     * is taken and no events are allocated.
+     *
+     * @param listener The listener, or null to remove it.
+     */
+    public static void setMetricsListener(MetricsListener listener) {
+        sMetricsListener = listener;
+    }
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -171,6 +280,248 @@ public abstract class PreferenceFragment extends Fragment {
             new Class[] { Activity.class, int.class },
             new Object[] { getActivity(), FIRST_REQUEST_CODE });
         // FIXME: mPreferenceManager.setFragment(this);
+        warmUpSharedPreferences();
+        if (useWriteBehind()) {
+            installWriteBehind();
+        }
+        if (useRetainedHierarchy()) {
+            if (getParentFragment() == null) {
+                setRetainInstance(true);
+            } else {
+                Log.w(TAG, "cannot retain the hierarchy of a nested fragment");
+            }
+        }
+    }
+
+    /**
+     * Whether the {@link PreferenceManager} and the preference hierarchy should be
+     * kept across configuration changes, so only the views are created and bound
+     * again. The hierarchy is moved to the new activity when attached, and to the
+     * application context while detached, so the old activity is not leaked;
+     * subclasses keeping their own references to the activity must clear them.
+     * Shown dialogs are dismissed on detach and restored from the saved state.
+     * The EditText of each {@link EditTextPreference} is created again for the new
+     * context, keeping its id, input type, transformation, filters and hint, and the
+     * ListView kept by each nested {@link PreferenceScreen} once shown is dropped;
+     * other preferences keeping views must create them again in their own code.
+     * Fragments nested in another fragment cannot be retained and ignore this.
+     *
+     * @return false by default
+     * @see #setRetainInstance(boolean)
+     */
+    protected boolean useRetainedHierarchy() {
+        return false;
+    }
+
+    /**
+     * Whether the root view and, with {@link #useIncrementalBinding()}, the row views
+     * should be given to a pool shared by the fragments of the activity in
+     * {@link #onDestroyView()}, and taken from it in {@link #onCreateView}, so
+     * fragments in pagers or tabs do not inflate from scratch each time they are
+     * shown. The pool is bounded and is dropped when no fragment uses it.
+     * Subclasses overriding {@link #onCreateView} only share row views.
+     *
+     * @return false by default
+     */
+    protected boolean useSharedViewPool() {
+        return false;
+    }
+
+    private PreferenceViewPool mViewPool;
+
+    /**
+     * The root view made by {@link #onCreateView}, which may go to the pool.
+     */
+    private View mCreatedView;
+
+    @Override
+    public void onAttach(Activity activity) {
+        super.onAttach(activity);
+        if (useSharedViewPool()) {
+            mViewPool = PreferenceViewPool.acquire(activity);
+        }
+        if (mPreferenceManager != null) {
+            // retained across a configuration change
+            moveHierarchy(activity, activity);
+        }
+    }
+
+    @Override
+    public void onDetach() {
+        final Activity activity = getActivity();
+        super.onDetach();
+        if (mViewPool != null) {
+            mViewPool = null;
+            if (mAdapter != null) {
+                mAdapter.setViewPool(null);
+            }
+            PreferenceViewPool.release(activity);
+        }
+        if (mPreferenceManager != null && getRetainInstance() && activity != null) {
+            // FIXME: mPreferenceManager.dispatchActivityDestroy();
+            callVoidMethod(mPreferenceManager, "dispatchActivityDestroy", null, null);
+            moveHierarchy(null, activity.getApplicationContext());
+        }
+    }
+
+    /**
+     * point the preference manager and every inflated preference to the given context
+     */
+    private void moveHierarchy(Activity activity, Context context) {
+        // FIXME: mPreferenceManager.mActivity = activity;
+        setField(mPreferenceManager, PreferenceManager.class, "mActivity", activity);
+        // FIXME: mPreferenceManager.mContext = context;
+        setField(mPreferenceManager, PreferenceManager.class, "mContext", context);
+        final PreferenceScreen preferenceScreen = getPreferenceScreen();
+        if (preferenceScreen != null) {
+            movePreference(preferenceScreen, context);
+        }
+    }
+
+    private static void movePreference(Preference preference, Context context) {
+        // FIXME: preference.mContext = context;
+        setField(preference, Preference.class, "mContext", context);
+        if (preference instanceof DialogPreference) {
+            // FIXME: preference.mBuilder = null; kept after the dialog is dismissed
+            setField(preference, DialogPreference.class, "mBuilder", null);
+        }
+        if (preference instanceof EditTextPreference) {
+            moveEditText((EditTextPreference) preference, context);
+        }
+        if (preference instanceof PreferenceScreen) {
+            // FIXME: preference.mListView = null; kept after the nested screen is dismissed
+            setField(preference, PreferenceScreen.class, "mListView", null);
+        }
+        if (preference instanceof PreferenceGroup) {
+            PreferenceGroup group = (PreferenceGroup) preference;
+            final int count = group.getPreferenceCount();
+            for (int i = 0; i < count; ++i) {
+                movePreference(group.getPreference(i), context);
+            }
+        }
+    }
+
+    /**
+     * EditTextPreference creates its EditText once, with the context it was inflated with
+     */
+    private static void moveEditText(EditTextPreference preference, Context context) {
+        final EditText oldEditText = preference.getEditText();
+        if (oldEditText == null || oldEditText.getContext() == context) {
+            return;
+        }
+        // same as the constructor, with what the attributes set copied over
+        EditText editText = new EditText(context);
+        editText.setId(oldEditText.getId());
+        editText.setEnabled(true);
+        editText.setInputType(oldEditText.getInputType());
+        editText.setTransformationMethod(oldEditText.getTransformationMethod());
+        editText.setFilters(oldEditText.getFilters());
+        editText.setHint(oldEditText.getHint());
+        // FIXME: preference.mEditText = editText;
+        setField(preference, EditTextPreference.class, "mEditText", editText);
+    }
+
+    /**
+     * Whether preference changes should be buffered in memory, coalesced per key and
+     * written to disk with a single background commit after a short delay, and at the
+     * latest in {@link #onStop()} and {@link #onDestroy()}.
+     * Subclasses may override to keep frequent edits off the main thread.
+     * The buffer is dropped if the shared preferences name is changed afterwards.
+     *
+     * @return false by default
+     */
+    protected boolean useWriteBehind() {
+        return false;
+    }
+
+    private WriteBehindSharedPreferences mWriteBehind;
+
+    private void installWriteBehind() {
+        if (mPreferenceManager == null) {
+            return;
+        }
+        WriteBehindSharedPreferences sharedPreferences = new WriteBehindSharedPreferences(getActivity(),
+            mPreferenceManager.getSharedPreferencesName(), mPreferenceManager.getSharedPreferencesMode());
+        // FIXME: mPreferenceManager.mSharedPreferences = sharedPreferences;
+        if (setField(mPreferenceManager, PreferenceManager.class, "mSharedPreferences", sharedPreferences)) {
+            mWriteBehind = sharedPreferences;
+        }
+    }
+
+    private void flushWriteBehind() {
+        if (mWriteBehind != null) {
+            mWriteBehind.flush();
+        }
+    }
+
+    /**
+     * Returns the name of the {@link SharedPreferences} that this fragment's
+     * {@link PreferenceManager} should use, which is loaded from disk on a background
+     * thread as soon as {@link #onCreate(Bundle)} runs.
+     * Subclasses may override to use another file, or return null to neither change
+     * the name nor load it in advance.
+     *
+     * @return The default shared preferences name of the package.
+     */
+    protected String getSharedPreferencesName() {
+        return getActivity().getPackageName() + DEFAULT_PREFERENCES_SUFFIX;
+    }
+
+    /**
+     * Returns the mode of the {@link SharedPreferences} named by
+     * {@link #getSharedPreferencesName()}.
+     *
+     * @return {@link Context#MODE_PRIVATE} by default
+     */
+    protected int getSharedPreferencesMode() {
+        return Context.MODE_PRIVATE;
+    }
+
+    /**
+     * Waits for the background load started in {@link #onCreate(Bundle)}, so the first
+     * preference access does not read the file on the calling thread.
+     *
+     * @param timeout The maximum time to wait in milliseconds.
+     * @return true if the shared preferences are loaded.
+     */
+    public boolean awaitSharedPreferences(long timeout) {
+        if (mWarmUp == null) {
+            return false;
+        }
+        try {
+            mWarmUp.get(timeout, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        } catch (TimeoutException e) {
+            // still loading
+        }
+        return false;
+    }
+
+    private static final String DEFAULT_PREFERENCES_SUFFIX = "_preferences";
+
+    private Future<?> mWarmUp;
+
+    private void warmUpSharedPreferences() {
+        final String name = getSharedPreferencesName();
+        if (name == null || mPreferenceManager == null) {
+            return;
+        }
+        final int mode = getSharedPreferencesMode();
+        mPreferenceManager.setSharedPreferencesName(name);
+        mPreferenceManager.setSharedPreferencesMode(mode);
+
+        final Context context = getActivity().getApplicationContext();
+        mWarmUp = getExecutor().submit(new Runnable() {
+            @Override
+            public void run() {
+                // any read blocks until the file is loaded
+                context.getSharedPreferences(name, mode).contains(name);
+            }
+        });
     }
 
     public static final String LAYOUT =
@@ -194,45 +545,156 @@ public abstract class PreferenceFragment extends Fragment {
         "AAAEAACAPwMBEAAYAAAAFAAAAP//////////EwAAAAMBEAAYAAAAFgAAAP//////////EgAAAAEB" +
         "EAAYAAAAFgAAAP////8PAAAAEAAAAA==";
 
+    private static final String XML_BLOCK = "android.content.res.XmlBlock";
+
+    /**
+     * XmlBlock instances keyed by their base64 source, kept open for the process
+     * so every parser over the same layout shares one decoded native block.
+     */
+    private static final ConcurrentHashMap<String, Object> sXmlBlocks =
+        new ConcurrentHashMap<String, Object>();
+
+    private static Object newXmlBlock(byte[] data) {
+        Class<?> clazz = findClass(XML_BLOCK);
+        if (clazz == null) {
+            return null;
+        }
+        // XmlBlock block = new XmlBlock(data);
+        return callConstructor(clazz, new Class[] { byte[].class }, new Object[] { data });
+    }
+
+    private static Object getXmlBlock(String xml) {
+        Object block = sXmlBlocks.get(xml);
+        if (block != null) {
+            return block;
+        }
+        block = newXmlBlock(Base64.decode(xml, Base64.DEFAULT));
+        if (block == null) {
+            return null;
+        }
+        Object previous = sXmlBlocks.putIfAbsent(xml, block);
+        if (previous != null) {
+            // XmlBlock.close();
+            callVoidMethod(block, "close", null, null);
+            return previous;
+        }
+        return block;
+    }
+
+    /**
+     * horizontal padding of the list in {@link #LAYOUT}
+     */
+    private static final int LAYOUT_PADDING_DIP = 16;
+
     /**
-     * return XmlPullParser
+     * return XmlPullParser, the decoded block is cached per xml and shared
+     * between parsers, close the parser by {@link #closeParser(XmlPullParser)}
      * @param xml compiled XML encoded in base64
      * @return XmlPullParser
      */
-     public static XmlPullParser getParser(String xml) {
+    public static XmlPullParser getParser(String xml) {
+        final long start = startTiming();
         try {
-            byte[] data = Base64.decode(xml, Base64.DEFAULT);
+            Object block = getXmlBlock(xml);
+            if (block == null) {
+                return null;
+            }
+            // XmlPullParser parser = block.newParser();
+            return callReturnMethod(block, "newParser", XmlPullParser.class, null, null);
+        } finally {
+            endTiming(PHASE_GET_PARSER, null, start);
+        }
+    }
 
-            // XmlBlock block = new XmlBlock(LAYOUT.getBytes("UTF-8"));
-            Class<?> clazz = Class.forName("android.content.res.XmlBlock");
-            Constructor<?> constructor = clazz.getDeclaredConstructor(byte[].class);
-            constructor.setAccessible(true);
-            Object block = constructor.newInstance(data);
+    /**
+     * close XmlPullParser returned by {@link #getParser(String)}
+     * @param parser XmlPullParser, may be null
+     */
+    public static void closeParser(XmlPullParser parser) {
+        if (parser instanceof XmlResourceParser) {
+            ((XmlResourceParser) parser).close();
+        }
+    }
 
-            // XmlPullParser parser = block.newParser();
-            Method method = clazz.getDeclaredMethod("newParser");
-            method.setAccessible(true);
-            return (XmlPullParser) method.invoke(block);
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
-        } catch (IllegalArgumentException e) {
-            e.printStackTrace();
-        } catch (java.lang.InstantiationException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
-        } catch (InvocationTargetException e) {
-            e.printStackTrace();
+    /**
+     * close and drop every cached block, parsers already handed out stay valid
+     * until they are closed
+     */
+    public static void clearParserCache() {
+        for (String xml : sXmlBlocks.keySet()) {
+            Object block = sXmlBlocks.remove(xml);
+            if (block != null) {
+                callVoidMethod(block, "close", null, null);
+            }
         }
-        return null;
+    }
+
+    /**
+     * create the same hierarchy as {@link #LAYOUT} in code, without XmlBlock
+     * @param context context for the views
+     * @return LinearLayout containing a ListView with id android.R.id.list
+     */
+    public static View createLayout(Context context) {
+        final float density = context.getResources().getDisplayMetrics().density;
+        final int padding = (int) (LAYOUT_PADDING_DIP * density + 0.5f);
+
+        LinearLayout root = new LinearLayout(context);
+        root.setOrientation(LinearLayout.VERTICAL);
+        root.setBackgroundColor(Color.TRANSPARENT);
+        root.setLayoutParams(new ViewGroup.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+
+        ListView list = new ListView(context);
+        list.setId(android.R.id.list);
+        list.setPadding(padding, 0, padding, 0);
+        list.setScrollBarStyle(View.SCROLLBARS_OUTSIDE_OVERLAY);
+        list.setClipToPadding(false);
+        list.setDrawSelectorOnTop(false);
+        list.setCacheColorHint(Color.TRANSPARENT);
+        // FIXME: android:scrollbarAlwaysDrawVerticalTrack="true" has no public setter
+        root.addView(list, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 0, 1.0f));
+        return root;
+    }
+
+    /**
+     * Whether {@link #onCreateView} should build its views in code via
+     * {@link #createLayout(Context)} rather than inflating {@link #LAYOUT}.
+     * Subclasses may override to skip XmlBlock and the inflation pass.
+     *
+     * @return false by default
+     */
+    protected boolean useProgrammaticLayout() {
+        return false;
     }
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
             Bundle savedInstanceState) {
-        return inflater.inflate(getParser(LAYOUT), container, false);
+        final long start = startTiming();
+        try {
+            mCreatedView = mViewPool != null ? mViewPool.obtainRoot() : null;
+            if (mCreatedView == null) {
+                mCreatedView = createView(inflater, container);
+            }
+            return mCreatedView;
+        } finally {
+            endTiming(PHASE_CREATE_VIEW, null, start);
+        }
+    }
+
+    private View createView(LayoutInflater inflater, ViewGroup container) {
+        if (useProgrammaticLayout()) {
+            return createLayout(inflater.getContext());
+        }
+        XmlPullParser parser = getParser(LAYOUT);
+        if (parser == null) {
+            return createLayout(inflater.getContext());
+        }
+        try {
+            return inflater.inflate(parser, container, false);
+        } finally {
+            closeParser(parser);
+        }
     }
 
     @Override
@@ -245,35 +707,194 @@ public abstract class PreferenceFragment extends Fragment {
 
         mInitDone = true;
 
+        final Bundle args = getArguments();
+        if (savedInstanceState == null && args != null) {
+            mPendingKey = args.getString(ARG_PREFERENCE_KEY);
+            navigateToPendingPreference();
+        }
+
         if (savedInstanceState != null) {
             Bundle container = savedInstanceState.getBundle(PREFERENCES_TAG);
             if (container != null) {
                 final PreferenceScreen preferenceScreen = getPreferenceScreen();
-                if (preferenceScreen != null) {
+                if (preferenceScreen != null && useCompactInstanceState()) {
+                    restoreDirtyState(container);
+                } else if (preferenceScreen != null) {
+                    // deferred screens may have been shown as dialogs
+                    inflateLazyScreens(container);
                     preferenceScreen.restoreHierarchyState(container);
                 }
             }
         }
     }
 
+    /**
+     * Key from {@link #ARG_PREFERENCE_KEY} not shown yet, as preferences may be bound later.
+     */
+    private String mPendingKey;
+
+    private void navigateToPendingPreference() {
+        if (mPendingKey != null && mList != null && navigateToPreference(mPendingKey)) {
+            mPendingKey = null;
+        }
+    }
+
+    /**
+     * Shows the preference with the given key: nested screens holding it are
+     * opened, otherwise the list is scrolled to it.
+     *
+     * @param key The key of the preference to show.
+     * @return true if the preference was found
+     */
+    public boolean navigateToPreference(CharSequence key) {
+        final PreferenceScreen preferenceScreen = getPreferenceScreen();
+        final Preference preference = findPreference(key);
+        if (preferenceScreen == null || preference == null) {
+            return false;
+        }
+        ArrayList<PreferenceScreen> screens = new ArrayList<PreferenceScreen>();
+        if (!findScreens(preferenceScreen, preference, screens)) {
+            return false;
+        }
+        if (!screens.isEmpty()) {
+            for (PreferenceScreen screen : screens) {
+                // FIXME: screen.onClick();
+                callVoidMethod(screen, "onClick", null, null);
+            }
+            return true;
+        }
+        final ListView list = getListView();
+        final ListAdapter adapter = list.getAdapter();
+        final int count = adapter == null ? 0 : adapter.getCount();
+        for (int i = 0; i < count; ++i) {
+            if (adapter.getItem(i) == preference) {
+                list.setSelection(i);
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * add the nested screens from the group to the preference, return whether found
+     */
+    private static boolean findScreens(PreferenceGroup group, Preference preference, List<PreferenceScreen> screens) {
+        final int count = group.getPreferenceCount();
+        for (int i = 0; i < count; ++i) {
+            Preference child = group.getPreference(i);
+            if (child == preference) {
+                return true;
+            }
+            if (child instanceof PreferenceGroup) {
+                final boolean screen = child instanceof PreferenceScreen;
+                if (screen) {
+                    screens.add((PreferenceScreen) child);
+                }
+                if (findScreens((PreferenceGroup) child, preference, screens)) {
+                    return true;
+                }
+                if (screen) {
+                    screens.remove(screens.size() - 1);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether {@link #onSaveInstanceState(Bundle)} should only keep preferences
+     * with transient state, such as a shown dialog or an unsaved edit, and
+     * restore only those, instead of an entry for every preference with a key.
+     * Preferences are matched by key, so keys should be unique in the hierarchy.
+     * Subclasses may override to shrink the saved state of large hierarchies.
+     *
+     * @return false by default
+     */
+    protected boolean useCompactInstanceState() {
+        return false;
+    }
+
+    /**
+     * put the state of preferences that differs from the empty state, keyed by key
+     */
+    private static void saveDirtyState(PreferenceGroup group, Bundle container) {
+        final int count = group.getPreferenceCount();
+        for (int i = 0; i < count; ++i) {
+            Preference preference = group.getPreference(i);
+            if (preference.hasKey()) {
+                // FIXME: Parcelable state = preference.onSaveInstanceState();
+                Parcelable state = callReturnMethod(preference, "onSaveInstanceState", Parcelable.class, null, null);
+                if (state != null && state != AbsSavedState.EMPTY_STATE) {
+                    container.putParcelable(preference.getKey(), state);
+                }
+            }
+            if (preference instanceof PreferenceGroup) {
+                saveDirtyState((PreferenceGroup) preference, container);
+            }
+        }
+    }
+
+    private void restoreDirtyState(Bundle container) {
+        for (String key : container.keySet()) {
+            // deferred screens are only inflated if they hold a saved preference
+            Preference preference = findPreference(key);
+            Parcelable state = container.getParcelable(key);
+            if (preference != null && state != null) {
+                // FIXME: preference.onRestoreInstanceState(state);
+                callVoidMethod(preference, "onRestoreInstanceState",
+                    new Class[] { Parcelable.class }, new Object[] { state });
+            }
+        }
+    }
+
+    private static final String TREE_CLICK_LISTENER =
+        "android.preference.PreferenceManager$OnPreferenceTreeClickListener";
+
+    private Object mTreeClickListener;
+
+    private final InvocationHandler mTreeClickHandler = new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            // the listener interface declares only onPreferenceTreeClick
+            if (method.getDeclaringClass() != Object.class) {
+                Preference preference = (Preference) args[1];
+                if (preference instanceof PreferenceScreen && inflateLazyScreen((PreferenceScreen) preference)) {
+                    // FIXME: preference.onClick(), it had no children to show when clicked
+                    // and may have got its intent with them, started if this returns false
+                    callVoidMethod(preference, "onClick", null, null);
+                }
+                return onPreferenceTreeClick((PreferenceScreen) args[0], preference);
+            }
+            if (args != null && args.length == 1) {
+                // equals(Object)
+                return proxy == args[0];
+            }
+            return method.invoke(this, args);
+        }
+    };
+
+    /**
+     * return the OnPreferenceTreeClickListener proxy of this fragment, created once
+     * @return listener, or null if the interface is unavailable
+     */
+    private Object getTreeClickListener() {
+        if (mTreeClickListener == null) {
+            Class<?> clazz = findClass(TREE_CLICK_LISTENER);
+            if (clazz != null) {
+                mTreeClickListener = Proxy.newProxyInstance(clazz.getClassLoader(), new Class[] { clazz }, mTreeClickHandler);
+            }
+        }
+        return mTreeClickListener;
+    }
+
     @Override
     public void onStart() {
         super.onStart();
         // FIXME: mPreferenceManager.setOnPreferenceTreeClickListener(this);
-        try {
-            Class<?> clazz = Class.forName("android.preference.PreferenceManager$OnPreferenceTreeClickListener");
-            Object proxy = Proxy.newProxyInstance(clazz.getClassLoader(), new Class[] { clazz }, new InvocationHandler() {
-                @Override
-                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-                    if (method.getName().equals("onPreferenceTreeClick")) {
-                        return onPreferenceTreeClick((PreferenceScreen) args[0], (Preference) args[1]);
-                    }
-                    return null;
-                }
-            });
-            callVoidMethod(mPreferenceManager, "setOnPreferenceTreeClickListener", new Class[] { clazz }, new Object[] { proxy });
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
+        Object listener = getTreeClickListener();
+        if (listener != null) {
+            callVoidMethod(mPreferenceManager, "setOnPreferenceTreeClickListener",
+                new Class[] { findClass(TREE_CLICK_LISTENER) }, new Object[] { listener });
         }
     }
 
@@ -282,28 +903,53 @@ public abstract class PreferenceFragment extends Fragment {
         super.onStop();
         // FIXME: mPreferenceManager.dispatchActivityStop();
         callVoidMethod(mPreferenceManager, "dispatchActivityStop", null, null);
+        flushWriteBehind();
         // FIXME: mPreferenceManager.setOnPreferenceTreeClickListener(null);
-        try {
-            Class<?> clazz = Class.forName("android.preference.PreferenceManager$OnPreferenceTreeClickListener");
+        Class<?> clazz = findClass(TREE_CLICK_LISTENER);
+        if (clazz != null) {
             callVoidMethod(mPreferenceManager, "setOnPreferenceTreeClickListener", new Class[] { clazz }, new Object[] { null });
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
         }
     }
 
     @Override
     public void onDestroyView() {
+        if (mViewPool != null) {
+            recycleViews();
+        }
+        if (mAdapter != null) {
+            mAdapter.bind(null);
+        }
         mList = null;
         mHandler.removeCallbacks(mRequestFocus);
         mHandler.removeMessages(MSG_BIND_PREFERENCES);
         super.onDestroyView();
     }
 
+    private void recycleViews() {
+        if (mList != null) {
+            if (mAdapter != null && mList.getAdapter() == mAdapter) {
+                mViewPool.recycleRows(mList, mAdapter);
+            } else {
+                mList.setAdapter(null);
+            }
+            mList.setOnKeyListener(null);
+            // the old PreferenceScreen or adapter, which holds the whole hierarchy
+            mList.setOnItemClickListener(null);
+        }
+        // getView() may be a wrapper of the created view, see NoSaveStateFrameLayout
+        if (mCreatedView != null) {
+            mViewPool.recycleRoot(mCreatedView);
+            mCreatedView = null;
+        }
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
+        cancelInflateTasks();
         // FIXME: mPreferenceManager.dispatchActivityDestroy();
         callVoidMethod(mPreferenceManager, "dispatchActivityDestroy", null, null);
+        flushWriteBehind();
     }
 
     @Override
@@ -313,7 +959,11 @@ public abstract class PreferenceFragment extends Fragment {
         final PreferenceScreen preferenceScreen = getPreferenceScreen();
         if (preferenceScreen != null) {
             Bundle container = new Bundle();
-            preferenceScreen.saveHierarchyState(container);
+            if (useCompactInstanceState()) {
+                saveDirtyState(preferenceScreen, container);
+            } else {
+                preferenceScreen.saveHierarchyState(container);
+            }
             outState.putBundle(PREFERENCES_TAG, container);
         }
     }
@@ -342,9 +992,22 @@ public abstract class PreferenceFragment extends Fragment {
      * @param preferenceScreen The root {@link PreferenceScreen} of the preference hierarchy.
      */
     public void setPreferenceScreen(PreferenceScreen preferenceScreen) {
-        // FIXME: if (mPreferenceManager.setPreferences(preferenceScreen) && preferenceScreen != null) {
-        if (callReturnMethod(mPreferenceManager, "setPreferences", Boolean.class,
-            new Class[] { PreferenceScreen.class }, new Object[] { preferenceScreen }) && preferenceScreen != null) {
+        invalidatePreferenceIndex();
+        final long start = startTiming();
+        // FIXME: boolean changed = mPreferenceManager.setPreferences(preferenceScreen);
+        boolean changed = callReturnMethod(mPreferenceManager, "setPreferences", Boolean.class,
+            new Class[] { PreferenceScreen.class }, new Object[] { preferenceScreen });
+        endTiming(PHASE_SET_PREFERENCES, null, start);
+        if (changed && preferenceScreen != null) {
+            if (useIncrementalBinding()) {
+                if (mAdapter == null) {
+                    mAdapter = new PreferenceListAdapter();
+                }
+                mAdapter.setPreferenceScreen(preferenceScreen);
+                watchPreferenceIndex(mAdapter);
+            } else {
+                watchPreferenceIndex(preferenceScreen.getRootAdapter());
+            }
             mHavePrefs = true;
             if (mInitDone) {
                 postBindPreferences();
@@ -353,44 +1016,789 @@ public abstract class PreferenceFragment extends Fragment {
     }
 
     /**
-     * Gets the root of the preference hierarchy that this fragment is showing.
-     *
-     * @return The {@link PreferenceScreen} that is the root of the preference
-     *         hierarchy.
+     * Whether the android:dependency attributes of a hierarchy should be resolved in
+     * one pass when it is bound to the list, instead of one hierarchy lookup per
+     * dependent, with the initial enabled states applied in one batch followed by a
+     * single list refresh. Preferences added to a bound hierarchy resolve their own
+     * dependency as usual, and so do those whose dependency is not in the hierarchy.
+     * Subclasses may override for screens with many dependent preferences.
+     *
+     * @return false by default
+     */
+    protected boolean useDependencyGraph() {
+        return false;
+    }
+
+    /**
+     * Graph of the hierarchy when last bound, null if not used.
+     */
+    private PreferenceDependencyGraph mDependencyGraph;
+
+    /**
+     * resolve dependencies of preferences added to the bound hierarchy
+     */
+    private void rebuildDependencyGraph() {
+        final PreferenceScreen preferenceScreen = getPreferenceScreen();
+        if (mDependencyGraph == null || preferenceScreen == null) {
+            return;
+        }
+        mDependencyGraph = new PreferenceDependencyGraph(preferenceScreen);
+        mDependencyGraph.attach();
+        refreshList(preferenceScreen);
+    }
+
+    private void refreshList(PreferenceScreen preferenceScreen) {
+        if (mAdapter != null) {
+            mAdapter.notifyDataSetChanged();
+        } else if (preferenceScreen.getRootAdapter() instanceof BaseAdapter) {
+            ((BaseAdapter) preferenceScreen.getRootAdapter()).notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Gets the root of the preference hierarchy that this fragment is showing.
+     *
+     * @return The {@link PreferenceScreen} that is the root of the preference
+     *         hierarchy.
+     */
+    public PreferenceScreen getPreferenceScreen() {
+        // FIXME: return mPreferenceManager.getPreferenceScreen();
+        return callReturnMethod(mPreferenceManager, "getPreferenceScreen", PreferenceScreen.class, null, null);
+    }
+
+    /**
+     * Adds preferences from activities that match the given {@link Intent}.
+     *
+     * @param intent The {@link Intent} to query activities.
+     */
+    public void addPreferencesFromIntent(Intent intent) {
+        requirePreferenceManager();
+
+        // FIXME: setPreferenceScreen(mPreferenceManager.inflateFromIntent(intent, getPreferenceScreen()));
+        setPreferenceScreen(callReturnMethod(mPreferenceManager, "inflateFromIntent", PreferenceScreen.class,
+            new Class[] { Intent.class, PreferenceScreen.class },
+            new Object[] { intent, getPreferenceScreen() }));
+    }
+
+    /**
+     * Adds preferences from activities that match the given {@link Intent}, like
+     * {@link #addPreferencesFromIntent(Intent)}, but inflates the resources of the
+     * matching activities concurrently on a bounded background pool and merges them
+     * in the same order. The compiled XML of other packages is kept in the template
+     * cache, keyed by package name and version code, when that cache is enabled,
+     * see {@link #setPreferenceTemplateCacheSize(int)}.
+     *
+     * @param intent The {@link Intent} to query activities.
+     */
+    public void addPreferencesFromIntentParallel(Intent intent) {
+        requirePreferenceManager();
+
+        final Context context = getActivity();
+        final PackageManager pm = context.getPackageManager();
+        final List<ResolveInfo> activities = pm.queryIntentActivities(intent, PackageManager.GET_META_DATA);
+        final ArrayList<Future<PreferenceScreen>> futures = new ArrayList<Future<PreferenceScreen>>();
+        final HashSet<String> inflatedRes = new HashSet<String>();
+        final HashMap<String, Context> packageContexts = new HashMap<String, Context>();
+
+        setNoCommit(true);
+        // FIXME: mPreferenceManager.getEditor(), created lazily and unsynchronized,
+        // so create it and the shared preferences here rather than on the pool
+        callReturnMethod(mPreferenceManager, "getEditor", SharedPreferences.Editor.class, null, null);
+        mPreferenceManager.getSharedPreferences();
+        try {
+            // same order as PreferenceManager.inflateFromIntent
+            for (int i = activities.size() - 1; i >= 0; i--) {
+                final ActivityInfo activityInfo = activities.get(i).activityInfo;
+                final Bundle metaData = activityInfo.metaData;
+                if (metaData == null || !metaData.containsKey(PreferenceManager.METADATA_KEY_PREFERENCES)) {
+                    continue;
+                }
+                final int resId = metaData.getInt(PreferenceManager.METADATA_KEY_PREFERENCES);
+                if (!inflatedRes.add(activityInfo.packageName + ":" + resId)) {
+                    continue;
+                }
+                final String packageKey = getPackageKey(pm, activityInfo.packageName);
+                if (packageKey == null) {
+                    continue;
+                }
+                Context packageContext = packageContexts.get(packageKey);
+                if (packageContext == null) {
+                    try {
+                        packageContext = context.createPackageContext(activityInfo.packageName, 0);
+                    } catch (PackageManager.NameNotFoundException e) {
+                        Log.w(TAG, "Could not create context for " + activityInfo.packageName, e);
+                        continue;
+                    }
+                    packageContexts.put(packageKey, packageContext);
+                }
+                final Context inflateContext = packageContext;
+                final String templateKey = packageKey + ":" + resId;
+                futures.add(getParallelExecutor().submit(new Callable<PreferenceScreen>() {
+                    @Override
+                    public PreferenceScreen call() {
+                        return inflateFromActivity(inflateContext, activityInfo, templateKey, resId);
+                    }
+                }));
+            }
+
+            PreferenceScreen preferenceScreen = getPreferenceScreen();
+            for (Future<PreferenceScreen> future : futures) {
+                PreferenceScreen inflated;
+                try {
+                    inflated = future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    e.printStackTrace();
+                    continue;
+                }
+                if (inflated == null) {
+                    continue;
+                }
+                if (preferenceScreen == null) {
+                    preferenceScreen = inflated;
+                    continue;
+                }
+                while (inflated.getPreferenceCount() > 0) {
+                    Preference preference = inflated.getPreference(0);
+                    inflated.removePreference(preference);
+                    preferenceScreen.addPreference(preference);
+                }
+            }
+            if (preferenceScreen != null) {
+                // FIXME: preferenceScreen.onAttachedToHierarchy(mPreferenceManager);
+                callVoidMethod(preferenceScreen, "onAttachedToHierarchy",
+                    new Class[] { PreferenceManager.class }, new Object[] { mPreferenceManager });
+            }
+            setPreferenceScreen(preferenceScreen);
+        } finally {
+            setNoCommit(false);
+        }
+    }
+
+    /**
+     * @return package name and version code, or null if the package is gone
+     */
+    private static String getPackageKey(PackageManager pm, String packageName) {
+        try {
+            return packageName + ":" + pm.getPackageInfo(packageName, 0).versionCode;
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "Could not find package " + packageName, e);
+            return null;
+        }
+    }
+
+    /**
+     * inflate the preferences meta-data of the activity into a new PreferenceScreen,
+     * called on the parallel pool with no-commit already set
+     */
+    private PreferenceScreen inflateFromActivity(Context context, ActivityInfo activityInfo,
+            String templateKey, int resId) {
+        final long start = startTiming();
+        Class<?> parent = findClass(GENERIC_INFLATER_PARENT);
+        Class<?> clazz = findClass(PREFERENCE_INFLATER);
+        if (parent == null || clazz == null) {
+            return null;
+        }
+        XmlPullParser parser;
+        Object block = getPreferenceTemplate(context, templateKey, resId);
+        if (block != null) {
+            parser = callReturnMethod(block, "newParser", XmlPullParser.class, null, null);
+        } else {
+            parser = activityInfo.loadXmlMetaData(context.getPackageManager(), PreferenceManager.METADATA_KEY_PREFERENCES);
+        }
+        if (parser == null) {
+            return null;
+        }
+        try {
+            // FIXME: PreferenceInflater inflater = new PreferenceInflater(context, mPreferenceManager);
+            Object inflater = callConstructor(clazz, new Class[] { Context.class, PreferenceManager.class },
+                new Object[] { context, mPreferenceManager });
+            if (inflater == null) {
+                return null;
+            }
+            // FIXME: return (PreferenceScreen) inflater.inflate(parser, null, true);
+            return callReturnMethod(inflater, "inflate", PreferenceScreen.class,
+                new Class[] { XmlPullParser.class, parent, boolean.class },
+                new Object[] { parser, null, true });
+        } finally {
+            closeParser(parser);
+            endTiming(PHASE_INFLATE, null, start);
+        }
+    }
+
+    private static ExecutorService sParallelExecutor;
+
+    /**
+     * return the bounded pool used to inflate several resources at once
+     */
+    static synchronized ExecutorService getParallelExecutor() {
+        if (sParallelExecutor == null) {
+            int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+            sParallelExecutor = Executors.newFixedThreadPool(threads, BACKGROUND_THREAD_FACTORY);
+        }
+        return sParallelExecutor;
+    }
+
+    /**
+     * Inflates the given XML resource and adds the preference hierarchy to the current
+     * preference hierarchy.
+     *
+     * @param preferencesResId The XML resource ID to inflate.
+     */
+    public void addPreferencesFromResource(int preferencesResId) {
+        requirePreferenceManager();
+
+        setPreferenceScreen(inflateFromResource(mPreferenceManager, getActivity(), preferencesResId,
+            getPreferenceScreen()));
+    }
+
+    /**
+     * Inflates the given XML resources in order and adds them to the current preference
+     * hierarchy, installing the result with a single {@link #setPreferenceScreen} and bind.
+     *
+     * @param preferencesResIds The XML resource IDs to inflate.
+     */
+    public void addPreferencesFromResources(int... preferencesResIds) {
+        requirePreferenceManager();
+
+        final Context context = getActivity();
+        PreferenceScreen preferenceScreen = getPreferenceScreen();
+        for (int preferencesResId : preferencesResIds) {
+            PreferenceScreen inflated = inflateFromResource(mPreferenceManager, context, preferencesResId,
+                preferenceScreen);
+            if (inflated != null) {
+                preferenceScreen = inflated;
+            }
+        }
+        setPreferenceScreen(preferenceScreen);
+    }
+
+    /**
+     * inflate with the given manager, the fragment's one unless inflating in the background
+     */
+    private PreferenceScreen inflateFromResource(PreferenceManager manager, Context context,
+            int preferencesResId, PreferenceScreen rootPreferences) {
+        final long start = startTiming();
+        try {
+            PreferenceScreen preferenceScreen = null;
+            if (useLazyInflation()) {
+                preferenceScreen = inflateLazily(manager, context, preferencesResId, rootPreferences);
+            }
+            if (preferenceScreen == null) {
+                preferenceScreen = inflateFromTemplate(manager, context, preferencesResId, rootPreferences);
+            }
+            if (preferenceScreen != null) {
+                return preferenceScreen;
+            }
+            // FIXME: return manager.inflateFromResource(context, preferencesResId, rootPreferences);
+            return callReturnMethod(manager, "inflateFromResource", PreferenceScreen.class,
+                new Class[] { Context.class, int.class, PreferenceScreen.class },
+                new Object[] { context, preferencesResId, rootPreferences });
+        } finally {
+            endTiming(PHASE_INFLATE, null, start);
+        }
+    }
+
+    private static final String PREFERENCE_INFLATER = "android.preference.PreferenceInflater";
+    private static final String GENERIC_INFLATER_PARENT = "android.preference.GenericInflater$Parent";
+
+    private static final class XmlTemplate {
+        final Object block;
+        final int size;
+
+        XmlTemplate(Object block, int size) {
+            this.block = block;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Compiled preference XML blocks keyed by resource id, or by package, version code
+     * and resource id for other packages, null when disabled.
+     */
+    private static LruCache<Object, XmlTemplate> sTemplates;
+    private static Configuration sTemplateConfiguration;
+
+    /**
+     * Enables or disables the process-wide cache of compiled preference XML used by
+     * {@link #addPreferencesFromResource(int)} and {@link #addPreferencesFromIntentParallel(Intent)}.
+     * Cached resources are inflated from a
+     * kept XmlBlock instead of being looked up and opened again, the least recently
+     * used ones are evicted, and the cache is cleared when the configuration changes.
+     *
+     * @param maxSize maximum total size of cached XML in bytes, 0 to disable.
+     */
+    public static synchronized void setPreferenceTemplateCacheSize(int maxSize) {
+        if (sTemplates != null) {
+            sTemplates.evictAll();
+            sTemplates = null;
+        }
+        if (maxSize > 0) {
+            sTemplates = new LruCache<Object, XmlTemplate>(maxSize) {
+                @Override
+                protected int sizeOf(Object key, XmlTemplate value) {
+                    return value.size;
+                }
+
+                @Override
+                protected void entryRemoved(boolean evicted, Object key, XmlTemplate oldValue, XmlTemplate newValue) {
+                    // XmlBlock.close();
+                    callVoidMethod(oldValue.block, "close", null, null);
+                }
+            };
+        }
+    }
+
+    private static Object getPreferenceTemplate(Context context, int preferencesResId) {
+        return getPreferenceTemplate(context, Integer.valueOf(preferencesResId), preferencesResId);
+    }
+
+    private static Object getPreferenceTemplate(Context context, Object key, int preferencesResId) {
+        Configuration configuration = context.getResources().getConfiguration();
+        synchronized (PreferenceFragment.class) {
+            if (sTemplates == null) {
+                return null;
+            }
+            if (sTemplateConfiguration == null || sTemplateConfiguration.diff(configuration) != 0) {
+                sTemplates.evictAll();
+                sTemplateConfiguration = new Configuration(configuration);
+            }
+            XmlTemplate template = sTemplates.get(key);
+            if (template != null) {
+                return template.block;
+            }
+        }
+        // read without the lock, other resources may be looked up meanwhile
+        byte[] data = readResource(context, preferencesResId);
+        Object block = data == null ? null : newXmlBlock(data);
+        if (block == null) {
+            return null;
+        }
+        synchronized (PreferenceFragment.class) {
+            XmlTemplate template = sTemplates == null ? null : sTemplates.get(key);
+            if (template == null && sTemplates != null && sTemplateConfiguration.diff(configuration) == 0) {
+                sTemplates.put(key, new XmlTemplate(block, data.length));
+                return block;
+            }
+            // XmlBlock.close(), read concurrently or no longer cacheable
+            callVoidMethod(block, "close", null, null);
+            return template != null ? template.block : null;
+        }
+    }
+
+    private static byte[] readResource(Context context, int resId) {
+        InputStream is = null;
+        try {
+            is = context.getResources().openRawResource(resId);
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int length;
+            while ((length = is.read(buffer)) != -1) {
+                os.write(buffer, 0, length);
+            }
+            return os.toByteArray();
+        } catch (Resources.NotFoundException e) {
+            e.printStackTrace();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * inflate the cached XmlBlock of the resource, as PreferenceManager.inflateFromResource does
+     * @return PreferenceScreen, or null if the template is disabled or unavailable
+     */
+    private PreferenceScreen inflateFromTemplate(PreferenceManager manager, Context context,
+            int preferencesResId, PreferenceScreen rootPreferences) {
+        Object block = getPreferenceTemplate(context, preferencesResId);
+        if (block == null) {
+            return null;
+        }
+        PreferenceScreen preferenceScreen = inflateFromBlock(manager, context, block, rootPreferences);
+        if (preferenceScreen != null) {
+            // FIXME: preferenceScreen.onAttachedToHierarchy(manager);
+            callVoidMethod(preferenceScreen, "onAttachedToHierarchy",
+                new Class[] { PreferenceManager.class }, new Object[] { manager });
+        }
+        return preferenceScreen;
+    }
+
+    /**
+     * inflate the XmlBlock with PreferenceInflater, children of the xml root are added to rootPreferences
+     * @return PreferenceScreen, or null if the hidden inflater is unavailable
+     */
+    private PreferenceScreen inflateFromBlock(PreferenceManager manager, Context context, Object block,
+            PreferenceScreen rootPreferences) {
+        Class<?> parent = findClass(GENERIC_INFLATER_PARENT);
+        Class<?> clazz = findClass(PREFERENCE_INFLATER);
+        if (parent == null || clazz == null) {
+            return null;
+        }
+        // FIXME: PreferenceInflater inflater = new PreferenceInflater(context, manager);
+        Object inflater = callConstructor(clazz, new Class[] { Context.class, PreferenceManager.class },
+            new Object[] { context, manager });
+        if (inflater == null) {
+            return null;
+        }
+        XmlPullParser parser = callReturnMethod(block, "newParser", XmlPullParser.class, null, null);
+        if (parser == null) {
+            return null;
+        }
+        setNoCommit(manager, true);
+        try {
+            // FIXME: return (PreferenceScreen) inflater.inflate(parser, rootPreferences, true);
+            return callReturnMethod(inflater, "inflate", PreferenceScreen.class,
+                new Class[] { XmlPullParser.class, parent, boolean.class },
+                new Object[] { parser, rootPreferences, true });
+        } finally {
+            closeParser(parser);
+            setNoCommit(manager, false);
+        }
+    }
+
+    private void setNoCommit(boolean noCommit) {
+        setNoCommit(mPreferenceManager, noCommit);
+    }
+
+    private static void setNoCommit(PreferenceManager manager, boolean noCommit) {
+        // FIXME: manager.setNoCommit(noCommit);
+        callVoidMethod(manager, "setNoCommit", new Class[] { boolean.class }, new Object[] { noCommit });
+    }
+
+    /**
+     * Whether nested {@link PreferenceScreen} elements in resources added by
+     * {@link #addPreferencesFromResource(int)} and its variants should be inflated
+     * only when they are clicked, or when {@link #findPreference(CharSequence)}
+     * looks for a key inside them, instead of up front.
+     * Subclasses may override to cut the initial inflation of deep settings trees.
+     * <p>
+     * Preferences of a deferred screen do not exist until it is inflated, so their
+     * android:defaultValue is not persisted until then either; call
+     * {@link PreferenceManager#setDefaultValues(Context, int, boolean)} with the
+     * resource if other code reads these values first.
+     *
+     * @return false by default
+     */
+    protected boolean useLazyInflation() {
+        return false;
+    }
+
+    /**
+     * Nested screens inflated without children, guarded by itself.
+     */
+    private final WeakHashMap<PreferenceScreen, LazyPreferenceXml.Screen> mLazyScreens =
+        new WeakHashMap<PreferenceScreen, LazyPreferenceXml.Screen>();
+
+    /**
+     * inflate the resource with the children of nested screens deferred
+     * @return PreferenceScreen, or null if the resource has nothing to defer
+     */
+    private PreferenceScreen inflateLazily(PreferenceManager manager, Context context, int preferencesResId,
+            PreferenceScreen rootPreferences) {
+        byte[] data = readResource(context, preferencesResId);
+        LazyPreferenceXml.Document document = data == null ? null : LazyPreferenceXml.split(data);
+        Object block = document == null ? null : newXmlBlock(document.data);
+        if (block == null) {
+            return null;
+        }
+        ArrayList<PreferenceScreen> existing = new ArrayList<PreferenceScreen>();
+        if (rootPreferences != null) {
+            collectScreens(rootPreferences, existing);
+        }
+        PreferenceScreen preferenceScreen;
+        try {
+            preferenceScreen = inflateFromBlock(manager, context, block, rootPreferences);
+        } finally {
+            // XmlBlock.close();
+            callVoidMethod(block, "close", null, null);
+        }
+        if (preferenceScreen != null) {
+            // FIXME: preferenceScreen.onAttachedToHierarchy(manager);
+            callVoidMethod(preferenceScreen, "onAttachedToHierarchy",
+                new Class[] { PreferenceManager.class }, new Object[] { manager });
+            registerLazyScreens(preferenceScreen, existing, document.screens);
+        }
+        return preferenceScreen;
+    }
+
+    /**
+     * match nested screens added under root, in order, with the deferred subtrees
+     */
+    private void registerLazyScreens(PreferenceScreen root, List<PreferenceScreen> existing,
+            List<LazyPreferenceXml.Screen> screens) {
+        ArrayList<PreferenceScreen> added = new ArrayList<PreferenceScreen>();
+        collectScreens(root, added);
+        // screens present before inflation come first in the same preorder
+        added.subList(0, Math.min(existing.size(), added.size())).clear();
+        if (added.size() != screens.size()) {
+            Log.w(TAG, "cannot match " + screens.size() + " nested screens with " + added.size());
+            return;
+        }
+        synchronized (mLazyScreens) {
+            final int size = added.size();
+            for (int i = 0; i < size; ++i) {
+                LazyPreferenceXml.Screen screen = screens.get(i);
+                PreferenceScreen preferenceScreen = added.get(i);
+                if (screen == null) {
+                    continue;
+                }
+                if (screen.key == null ? preferenceScreen.getKey() != null : !screen.key.equals(preferenceScreen.getKey())) {
+                    Log.w(TAG, "nested screen " + preferenceScreen.getKey() + " does not match " + screen.key);
+                    continue;
+                }
+                mLazyScreens.put(preferenceScreen, screen);
+            }
+        }
+    }
+
+    /**
+     * collect nested screens below group in preorder
+     */
+    private static void collectScreens(PreferenceGroup group, List<PreferenceScreen> screens) {
+        final int count = group.getPreferenceCount();
+        for (int i = 0; i < count; ++i) {
+            Preference preference = group.getPreference(i);
+            if (preference instanceof PreferenceScreen) {
+                screens.add((PreferenceScreen) preference);
+            }
+            if (preference instanceof PreferenceGroup) {
+                collectScreens((PreferenceGroup) preference, screens);
+            }
+        }
+    }
+
+    /**
+     * inflate the children of a nested screen deferred by lazy inflation
+     * @return true if the screen was deferred and is now inflated
+     */
+    private boolean inflateLazyScreen(PreferenceScreen preferenceScreen) {
+        LazyPreferenceXml.Screen screen;
+        synchronized (mLazyScreens) {
+            screen = mLazyScreens.remove(preferenceScreen);
+        }
+        if (screen == null) {
+            return false;
+        }
+        LazyPreferenceXml.Document document = LazyPreferenceXml.split(screen.data);
+        Object block = newXmlBlock(document != null ? document.data : screen.data);
+        if (block == null) {
+            return false;
+        }
+        try {
+            inflateFromBlock(mPreferenceManager, preferenceScreen.getContext(), block, preferenceScreen);
+        } finally {
+            // XmlBlock.close();
+            callVoidMethod(block, "close", null, null);
+        }
+        if (document != null) {
+            registerLazyScreens(preferenceScreen, new ArrayList<PreferenceScreen>(), document.screens);
+        }
+        invalidatePreferenceIndex();
+        rebuildDependencyGraph();
+        return true;
+    }
+
+    /**
+     * inflate deferred screens that may contain the key, or all of them if key is null
+     * @return true if any screen was inflated
+     */
+    private boolean inflateLazyScreens(String key) {
+        ArrayList<PreferenceScreen> preferenceScreens = new ArrayList<PreferenceScreen>();
+        synchronized (mLazyScreens) {
+            for (Map.Entry<PreferenceScreen, LazyPreferenceXml.Screen> entry : mLazyScreens.entrySet()) {
+                Set<String> keys = entry.getValue().keys;
+                if (key == null || keys.contains(key) || keys.contains(LazyPreferenceXml.UNKNOWN)) {
+                    preferenceScreens.add(entry.getKey());
+                }
+            }
+        }
+        boolean inflated = false;
+        for (PreferenceScreen preferenceScreen : preferenceScreens) {
+            inflated |= inflateLazyScreen(preferenceScreen);
+        }
+        return inflated;
+    }
+
+    /**
+     * inflate deferred screens with a state of their own in container, i.e. shown as dialogs
      */
-    public PreferenceScreen getPreferenceScreen() {
-        // FIXME: return mPreferenceManager.getPreferenceScreen();
-        return callReturnMethod(mPreferenceManager, "getPreferenceScreen", PreferenceScreen.class, null, null);
+    private void inflateLazyScreens(Bundle container) {
+        boolean inflated;
+        do {
+            ArrayList<PreferenceScreen> preferenceScreens = new ArrayList<PreferenceScreen>();
+            synchronized (mLazyScreens) {
+                for (PreferenceScreen preferenceScreen : mLazyScreens.keySet()) {
+                    String key = preferenceScreen.getKey();
+                    Parcelable state = key == null ? null : container.getParcelable(key);
+                    if (state != null && state != AbsSavedState.EMPTY_STATE) {
+                        preferenceScreens.add(preferenceScreen);
+                    }
+                }
+            }
+            inflated = false;
+            for (PreferenceScreen preferenceScreen : preferenceScreens) {
+                // nested screens deferred in turn are checked in the next pass
+                inflated |= inflateLazyScreen(preferenceScreen);
+            }
+        } while (inflated);
     }
 
     /**
-     * Adds preferences from activities that match the given {@link Intent}.
+     * Inflates the given XML resource on a background thread and adds the preference
+     * hierarchy to the current preference hierarchy on the main thread once done.
+     * Until then the list stays empty, see {@link #isInflatingPreferences()}.
+     * Pending inflations are applied in call order and cancelled in {@link #onDestroy()}.
      *
-     * @param intent The {@link Intent} to query activities.
+     * @param preferencesResId The XML resource ID to inflate.
      */
-    public void addPreferencesFromIntent(Intent intent) {
+    public void addPreferencesFromResourceAsync(int preferencesResId) {
         requirePreferenceManager();
 
-        // FIXME: setPreferenceScreen(mPreferenceManager.inflateFromIntent(intent, getPreferenceScreen()));
-        setPreferenceScreen(callReturnMethod(mPreferenceManager, "inflateFromIntent", PreferenceScreen.class,
-            new Class[] { Intent.class, PreferenceScreen.class },
-            new Object[] { intent, getPreferenceScreen() }));
+        InflateTask task = new InflateTask(getActivity(), newTaskPreferenceManager(), preferencesResId);
+        mInflateTasks.add(task);
+        task.future = getExecutor().submit(task);
     }
 
     /**
-     * Inflates the given XML resource and adds the preference hierarchy to the current
-     * preference hierarchy.
+     * Returns whether inflations started by {@link #addPreferencesFromResourceAsync(int)}
+     * are still pending.
      *
-     * @param preferencesResId The XML resource ID to inflate.
+     * @return true if preferences are being inflated.
      */
-    public void addPreferencesFromResource(int preferencesResId) {
-        requirePreferenceManager();
+    public boolean isInflatingPreferences() {
+        return !mInflateTasks.isEmpty();
+    }
+
+    private final ArrayList<InflateTask> mInflateTasks = new ArrayList<InflateTask>();
+
+    /**
+     * create a manager private to a background inflation, as PreferenceManager is not
+     * thread safe, sharing the shared preferences of the fragment's one
+     */
+    private PreferenceManager newTaskPreferenceManager() {
+        // FIXME: PreferenceManager manager = new PreferenceManager(getActivity(), FIRST_REQUEST_CODE);
+        PreferenceManager manager = callConstructor(PreferenceManager.class,
+            new Class[] { Activity.class, int.class },
+            new Object[] { getActivity(), FIRST_REQUEST_CODE });
+        if (manager == null) {
+            return null;
+        }
+        manager.setSharedPreferencesName(mPreferenceManager.getSharedPreferencesName());
+        manager.setSharedPreferencesMode(mPreferenceManager.getSharedPreferencesMode());
+        if (mWriteBehind != null) {
+            // FIXME: manager.mSharedPreferences = mWriteBehind;
+            setField(manager, PreferenceManager.class, "mSharedPreferences", mWriteBehind);
+        }
+        return manager;
+    }
+
+    /**
+     * attach every preference of the tree to the fragment's manager
+     */
+    private void attachToPreferenceManager(Preference preference) {
+        // FIXME: preference.onAttachedToHierarchy(mPreferenceManager);
+        callVoidMethod(preference, "onAttachedToHierarchy",
+            new Class[] { PreferenceManager.class }, new Object[] { mPreferenceManager });
+        if (preference instanceof PreferenceGroup) {
+            PreferenceGroup group = (PreferenceGroup) preference;
+            final int count = group.getPreferenceCount();
+            for (int i = 0; i < count; ++i) {
+                attachToPreferenceManager(group.getPreference(i));
+            }
+        }
+    }
+
+    private static ExecutorService sExecutor;
+
+    static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(BACKGROUND_THREAD_FACTORY);
+        }
+        return sExecutor;
+    }
+
+    private static final ThreadFactory BACKGROUND_THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }
+            }, "PreferenceFragment");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private final class InflateTask implements Runnable {
+        private final Context context;
+        private final PreferenceManager preferenceManager;
+        private final int preferencesResId;
+        volatile boolean cancelled;
+        Future<?> future;
+        PreferenceScreen preferenceScreen;
+
+        InflateTask(Context context, PreferenceManager preferenceManager, int preferencesResId) {
+            this.context = context;
+            this.preferenceManager = preferenceManager;
+            this.preferencesResId = preferencesResId;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled || preferenceManager == null) {
+                return;
+            }
+            preferenceScreen = inflateFromResource(preferenceManager, context, preferencesResId, null);
+            if (!cancelled) {
+                mHandler.obtainMessage(MSG_ADD_PREFERENCES, this).sendToTarget();
+            }
+        }
+    }
+
+    private void onInflateTaskDone(InflateTask task) {
+        if (task.cancelled || !mInflateTasks.remove(task)) {
+            return;
+        }
+        PreferenceScreen inflated = task.preferenceScreen;
+        if (inflated == null) {
+            return;
+        }
+        // inflated with the task's manager, nested preferences are not re-added below
+        attachToPreferenceManager(inflated);
+        PreferenceScreen preferenceScreen = getPreferenceScreen();
+        if (preferenceScreen == null) {
+            setPreferenceScreen(inflated);
+            return;
+        }
+        invalidatePreferenceIndex();
+        while (inflated.getPreferenceCount() > 0) {
+            Preference preference = inflated.getPreference(0);
+            inflated.removePreference(preference);
+            preferenceScreen.addPreference(preference);
+        }
+    }
 
-        // FIXME: setPreferenceScreen(mPreferenceManager.inflateFromResource(getActivity(),
-        //        preferencesResId, getPreferenceScreen()));
-        setPreferenceScreen(callReturnMethod(mPreferenceManager, "inflateFromResource", PreferenceScreen.class,
-            new Class[] { Context.class, int.class, PreferenceScreen.class },
-            new Object[] { getActivity(), preferencesResId, getPreferenceScreen() }));
+    private void cancelInflateTasks() {
+        for (InflateTask task : mInflateTasks) {
+            task.cancelled = true;
+            task.future.cancel(false);
+        }
+        mInflateTasks.clear();
+        mHandler.removeMessages(MSG_ADD_PREFERENCES);
     }
 
     /**
@@ -418,7 +1826,140 @@ public abstract class PreferenceFragment extends Fragment {
         if (mPreferenceManager == null) {
             return null;
         }
-        return mPreferenceManager.findPreference(key);
+        if (key == null) {
+            return mPreferenceManager.findPreference(key);
+        }
+        HashMap<String, Preference> index = getPreferenceIndex();
+        String name = key.toString();
+        Preference preference = index.get(name);
+        if (preference != null && !isIndexed(preference, name)) {
+            // removed or re-keyed since indexed, the observer only sees visible groups
+            invalidatePreferenceIndex();
+            index = getPreferenceIndex();
+            preference = index.get(name);
+        }
+        if (preference != null) {
+            return preference;
+        }
+        // not indexed yet, e.g. added to a nested screen after the index was built
+        preference = mPreferenceManager.findPreference(key);
+        if (preference == null && inflateLazyScreens(name)) {
+            return findPreference(key);
+        }
+        if (preference != null) {
+            // reindex with its parent next time
+            invalidatePreferenceIndex();
+        }
+        return preference;
+    }
+
+    /**
+     * Key to {@link Preference} index of the current hierarchy, null when stale.
+     */
+    private HashMap<String, Preference> mPreferenceIndex;
+
+    /**
+     * Group and position each indexed {@link Preference} was found at.
+     */
+    private final IdentityHashMap<Preference, IndexedPosition> mPreferencePositions =
+        new IdentityHashMap<Preference, IndexedPosition>();
+
+    private static final class IndexedPosition {
+        final PreferenceGroup parent;
+        final int index;
+
+        IndexedPosition(PreferenceGroup parent, int index) {
+            this.parent = parent;
+            this.index = index;
+        }
+    }
+
+    private ListAdapter mIndexedAdapter;
+
+    private final DataSetObserver mPreferenceIndexObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            mPreferenceIndex = null;
+        }
+
+        @Override
+        public void onInvalidated() {
+            mPreferenceIndex = null;
+        }
+    };
+
+    private void invalidatePreferenceIndex() {
+        mPreferenceIndex = null;
+    }
+
+    /**
+     * drop the index whenever the root adapter sees the hierarchy change
+     */
+    private void watchPreferenceIndex(ListAdapter adapter) {
+        if (adapter == mIndexedAdapter) {
+            return;
+        }
+        if (mIndexedAdapter != null) {
+            mIndexedAdapter.unregisterDataSetObserver(mPreferenceIndexObserver);
+        }
+        mIndexedAdapter = adapter;
+        if (adapter != null) {
+            adapter.registerDataSetObserver(mPreferenceIndexObserver);
+        }
+    }
+
+    private HashMap<String, Preference> getPreferenceIndex() {
+        if (mPreferenceIndex == null) {
+            mPreferenceIndex = new HashMap<String, Preference>();
+            mPreferencePositions.clear();
+            PreferenceScreen preferenceScreen = getPreferenceScreen();
+            if (preferenceScreen != null) {
+                indexPreference(mPreferenceIndex, mPreferencePositions, preferenceScreen);
+            }
+        }
+        return mPreferenceIndex;
+    }
+
+    /**
+     * index in the same order as {@link PreferenceGroup#findPreference(CharSequence)},
+     * so the first preference with a key wins
+     */
+    private static void indexPreference(HashMap<String, Preference> index,
+            Map<Preference, IndexedPosition> positions, Preference preference) {
+        String key = preference.getKey();
+        if (key != null && !index.containsKey(key)) {
+            index.put(key, preference);
+        }
+        if (preference instanceof PreferenceGroup) {
+            PreferenceGroup group = (PreferenceGroup) preference;
+            final int count = group.getPreferenceCount();
+            for (int i = 0; i < count; ++i) {
+                Preference child = group.getPreference(i);
+                positions.put(child, new IndexedPosition(group, i));
+                indexPreference(index, positions, child);
+            }
+        }
+    }
+
+    /**
+     * whether the indexed preference still has the key and is still in the hierarchy,
+     * checking its indexed position in each group on the way up to the root, so
+     * anything moved since is reindexed
+     */
+    private boolean isIndexed(Preference preference, String key) {
+        if (!key.equals(preference.getKey())) {
+            return false;
+        }
+        final PreferenceScreen preferenceScreen = getPreferenceScreen();
+        while (preference != preferenceScreen) {
+            IndexedPosition position = mPreferencePositions.get(preference);
+            if (position == null || position.index >= position.parent.getPreferenceCount()
+                    || position.parent.getPreference(position.index) != preference) {
+                return false;
+            }
+            preference = position.parent;
+        }
+        return true;
     }
 
     private void requirePreferenceManager() {
@@ -434,11 +1975,50 @@ public abstract class PreferenceFragment extends Fragment {
 
     private void bindPreferences() {
         final PreferenceScreen preferenceScreen = getPreferenceScreen();
+        final long start = startTiming();
         if (preferenceScreen != null) {
-            preferenceScreen.bind(getListView());
+            // resources merged since the last bind are resolved too
+            mDependencyGraph = useDependencyGraph() ? new PreferenceDependencyGraph(preferenceScreen) : null;
+            if (mDependencyGraph != null) {
+                mDependencyGraph.detachKeys();
+            }
+            if (mAdapter != null) {
+                mAdapter.setPreferenceScreen(preferenceScreen);
+                mAdapter.setViewPool(mViewPool);
+                mAdapter.bind(getListView());
+                if (preferenceScreen != mAttachedScreen) {
+                    mAttachedScreen = preferenceScreen;
+                    // FIXME: preferenceScreen.onAttachedToActivity();
+                    callVoidMethod(preferenceScreen, "onAttachedToActivity", null, null);
+                }
+            } else {
+                preferenceScreen.bind(getListView());
+            }
+            if (mDependencyGraph != null) {
+                mDependencyGraph.attach();
+                refreshList(preferenceScreen);
+            }
+            navigateToPendingPreference();
         }
+        endTiming(PHASE_BIND, null, start);
+    }
+
+    /**
+     * Whether the list should be bound through a persistent adapter kept across
+     * {@link #setPreferenceScreen(PreferenceScreen)} calls, which refreshes only
+     * changed rows with stable ids instead of installing a new root adapter.
+     * Subclasses may override to keep scroll position on dynamic screens.
+     *
+     * @return false by default
+     */
+    protected boolean useIncrementalBinding() {
+        return false;
     }
 
+    private PreferenceListAdapter mAdapter;
+
+    private PreferenceScreen mAttachedScreen;
+
     /** @hide */
     public ListView getListView() {
         ensureList();
@@ -487,36 +2067,205 @@ public abstract class PreferenceFragment extends Fragment {
 
     };
 
+    /**
+     * Placeholder cached for members that do not exist on the running platform,
+     * so a missing method or constructor is only looked up once per process.
+     */
+    private static final Object NO_MEMBER = new Object();
+
+    private static final ConcurrentHashMap<MemberKey, Object> sMembers =
+        new ConcurrentHashMap<MemberKey, Object>();
+
+    /**
+     * Fields by declaring class and name, {@link #NO_MEMBER} if missing.
+     */
+    private static final ConcurrentHashMap<MemberKey, Object> sFields =
+        new ConcurrentHashMap<MemberKey, Object>();
+
+    private static final Class<?>[] NO_PARAMETERS = new Class<?>[0];
+
+    /**
+     * Key of a cached member. Lookups reuse a key per thread that refers to the
+     * caller's parameter types, only keys stored in the cache own a copy.
+     */
+    private static final class MemberKey {
+        private Class<?> clazz;
+        private String name;
+        private Class<?>[] parameterTypes;
+        private int hashCode;
+
+        MemberKey set(Class<?> clazz, String name, Class<?>[] parameterTypes) {
+            this.clazz = clazz;
+            this.name = name;
+            this.parameterTypes = parameterTypes == null ? NO_PARAMETERS : parameterTypes;
+            this.hashCode = (clazz.hashCode() * 31 + name.hashCode()) * 31 + Arrays.hashCode(this.parameterTypes);
+            return this;
+        }
+
+        /**
+         * @return a key safe to store, not sharing the parameter types with the caller
+         */
+        MemberKey copy() {
+            MemberKey key = new MemberKey();
+            key.clazz = clazz;
+            key.name = name;
+            key.parameterTypes = parameterTypes.length == 0 ? NO_PARAMETERS : parameterTypes.clone();
+            key.hashCode = hashCode;
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MemberKey)) {
+                return false;
+            }
+            MemberKey other = (MemberKey) o;
+            return clazz == other.clazz && name.equals(other.name)
+                && Arrays.equals(parameterTypes, other.parameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final ThreadLocal<MemberKey> sLookupKey = new ThreadLocal<MemberKey>() {
+        @Override
+        protected MemberKey initialValue() {
+            return new MemberKey();
+        }
+    };
+
+    private static final ConcurrentHashMap<String, Object> sClasses =
+        new ConcurrentHashMap<String, Object>();
+
+    /**
+     * return the class with the given name, cached per process
+     * @param className class name
+     * @return Class, or null if no such class exists
+     */
+    static Class<?> findClass(String className) {
+        Object clazz = sClasses.get(className);
+        if (clazz == null) {
+            try {
+                clazz = Class.forName(className);
+            } catch (ClassNotFoundException e) {
+                e.printStackTrace();
+                clazz = NO_MEMBER;
+            }
+            onReflectionLookup(className, clazz != NO_MEMBER);
+            sClasses.putIfAbsent(className, clazz);
+        }
+        return clazz == NO_MEMBER ? null : (Class<?>) clazz;
+    }
+
+    /**
+     * return the accessible method declared by clazz or its superclasses, cached per process
+     * @param clazz class of the receiver
+     * @param methodName method name
+     * @param parameterTypes parameter types, or null
+     * @return Method, or null if no such method exists
+     */
+    static Method getMethod(Class<?> clazz, String methodName, Class<?>[] parameterTypes) {
+        MemberKey key = sLookupKey.get().set(clazz, methodName, parameterTypes);
+        Object member = sMembers.get(key);
+        if (member == null) {
+            // the lookup key may be reused by a listener called below
+            key = key.copy();
+            member = NO_MEMBER;
+            NoSuchMethodException exception = null;
+            for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+                try {
+                    Method method = c.getDeclaredMethod(methodName, parameterTypes);
+                    method.setAccessible(true);
+                    member = method;
+                    break;
+                } catch (NoSuchMethodException e) {
+                    if (exception == null) {
+                        exception = e;
+                    }
+                }
+            }
+            if (member == NO_MEMBER && exception != null) {
+                exception.printStackTrace();
+            }
+            onReflectionLookup(methodName, member != NO_MEMBER);
+            Object previous = sMembers.putIfAbsent(key, member);
+            if (previous != null) {
+                member = previous;
+            }
+        }
+        return member == NO_MEMBER ? null : (Method) member;
+    }
+
+    /**
+     * return the accessible constructor declared by clazz, cached per process
+     * @param clazz class to construct
+     * @param parameterTypes parameter types, or null
+     * @return Constructor, or null if no such constructor exists
+     */
+    static Constructor<?> getConstructor(Class<?> clazz, Class<?>[] parameterTypes) {
+        MemberKey key = sLookupKey.get().set(clazz, "<init>", parameterTypes);
+        Object member = sMembers.get(key);
+        if (member == null) {
+            // the lookup key may be reused by a listener called below
+            key = key.copy();
+            try {
+                Constructor<?> constructor = clazz.getDeclaredConstructor(parameterTypes);
+                constructor.setAccessible(true);
+                member = constructor;
+            } catch (NoSuchMethodException e) {
+                e.printStackTrace();
+                member = NO_MEMBER;
+            }
+            onReflectionLookup(clazz.getName(), member != NO_MEMBER);
+            Object previous = sMembers.putIfAbsent(key, member);
+            if (previous != null) {
+                member = previous;
+            }
+        }
+        return member == NO_MEMBER ? null : (Constructor<?>) member;
+    }
+
     public static void callVoidMethod(Object receiver, String methodName, Class<?>[] parameterTypes, Object[] args) {
+        Method method = getMethod(receiver.getClass(), methodName, parameterTypes);
+        if (method == null) {
+            return;
+        }
+        final long start = startTiming();
         try {
-            Method method = receiver.getClass().getDeclaredMethod(methodName, parameterTypes);
-            method.setAccessible(true);
             method.invoke(receiver, args);
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
         } catch (IllegalArgumentException e) {
-            e.printStackTrace();
+            onReflectionFailure(methodName, e);
         } catch (IllegalAccessException e) {
-            e.printStackTrace();
+            onReflectionFailure(methodName, e);
         } catch (InvocationTargetException e) {
-            e.printStackTrace();
+            onReflectionFailure(methodName, e);
+        } finally {
+            endTiming(PHASE_REFLECTIVE_CALL, methodName, start);
         }
     }
 
     @SuppressWarnings("unchecked")
     public static <T> T callReturnMethod(Object receiver, String methodName, Class<T> returnType, Class<?>[] parameterTypes, Object[] args) {
-        try {
-            Method method = receiver.getClass().getDeclaredMethod(methodName, parameterTypes);
-            method.setAccessible(true);
-            return (T) method.invoke(receiver, args);
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
-        } catch (IllegalArgumentException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
-        } catch (InvocationTargetException e) {
-            e.printStackTrace();
+        Method method = getMethod(receiver.getClass(), methodName, parameterTypes);
+        if (method != null) {
+            final long start = startTiming();
+            try {
+                return (T) method.invoke(receiver, args);
+            } catch (IllegalArgumentException e) {
+                onReflectionFailure(methodName, e);
+            } catch (IllegalAccessException e) {
+                onReflectionFailure(methodName, e);
+            } catch (InvocationTargetException e) {
+                onReflectionFailure(methodName, e);
+            } finally {
+                endTiming(PHASE_REFLECTIVE_CALL, methodName, start);
+            }
         }
         if (Boolean.class.equals(returnType)) {
             return (T) Boolean.FALSE;
@@ -526,21 +2275,120 @@ public abstract class PreferenceFragment extends Fragment {
 
     @SuppressWarnings("unchecked")
     public static <T> T callConstructor(Class<T> returnType, Class<?>[] parameterTypes, Object[] args) {
+        Constructor<?> constructor = getConstructor(returnType, parameterTypes);
+        if (constructor == null) {
+            return null;
+        }
+        final String name = returnType.getName();
+        final long start = startTiming();
         try {
-            Constructor<?> constructor = returnType.getDeclaredConstructor(parameterTypes);
-            constructor.setAccessible(true);
             return (T) constructor.newInstance(args);
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
         } catch (IllegalArgumentException e) {
-            e.printStackTrace();
+            onReflectionFailure(name, e);
         } catch (java.lang.InstantiationException e) {
-            e.printStackTrace();
+            onReflectionFailure(name, e);
         } catch (IllegalAccessException e) {
-            e.printStackTrace();
+            onReflectionFailure(name, e);
         } catch (InvocationTargetException e) {
-            e.printStackTrace();
+            onReflectionFailure(name, e);
+        } finally {
+            endTiming(PHASE_REFLECTIVE_CALL, name, start);
+        }
+        return null;
+    }
+
+    /**
+     * return the accessible field declared by clazz, cached per process
+     * @param clazz class declaring the field
+     * @param fieldName field name
+     * @return Field, or null if no such field exists
+     */
+    static Field getDeclaredField(Class<?> clazz, String fieldName) {
+        MemberKey key = sLookupKey.get().set(clazz, fieldName, null);
+        Object member = sFields.get(key);
+        if (member == null) {
+            // the lookup key may be reused by a listener called below
+            key = key.copy();
+            try {
+                Field field = clazz.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                member = field;
+            } catch (NoSuchFieldException e) {
+                e.printStackTrace();
+                member = NO_MEMBER;
+            }
+            onReflectionLookup(fieldName, member != NO_MEMBER);
+            Object previous = sFields.putIfAbsent(key, member);
+            if (previous != null) {
+                member = previous;
+            }
+        }
+        return member == NO_MEMBER ? null : (Field) member;
+    }
+
+    /**
+     * get the declared field of clazz on receiver, or null
+     */
+    static Object getField(Object receiver, Class<?> clazz, String fieldName) {
+        Field field = getDeclaredField(clazz, fieldName);
+        if (field == null) {
+            return null;
+        }
+        try {
+            return field.get(receiver);
+        } catch (IllegalArgumentException e) {
+            onReflectionFailure(fieldName, e);
+        } catch (IllegalAccessException e) {
+            onReflectionFailure(fieldName, e);
         }
         return null;
     }
+
+    /**
+     * set the declared field of clazz on receiver, return whether it was set
+     */
+    static boolean setField(Object receiver, Class<?> clazz, String fieldName, Object value) {
+        Field field = getDeclaredField(clazz, fieldName);
+        if (field == null) {
+            return false;
+        }
+        try {
+            field.set(receiver, value);
+            return true;
+        } catch (IllegalArgumentException e) {
+            onReflectionFailure(fieldName, e);
+        } catch (IllegalAccessException e) {
+            onReflectionFailure(fieldName, e);
+        }
+        return false;
+    }
+
+    /**
+     * @return start time for {@link #endTiming}, or 0 without a metrics listener
+     */
+    static long startTiming() {
+        return sMetricsListener != null ? System.nanoTime() : 0;
+    }
+
+    static void endTiming(int phase, String name, long start) {
+        final MetricsListener metrics = sMetricsListener;
+        if (metrics != null && start != 0) {
+            metrics.onTiming(phase, name, System.nanoTime() - start);
+        }
+    }
+
+    private static void onReflectionLookup(String name, boolean found) {
+        final MetricsListener metrics = sMetricsListener;
+        if (metrics != null) {
+            metrics.onReflectionLookup(name, found);
+        }
+    }
+
+    private static void onReflectionFailure(String name, Throwable throwable) {
+        throwable.printStackTrace();
+        final MetricsListener metrics = sMetricsListener;
+        if (metrics != null) {
+            metrics.onReflectionFailure(name, throwable);
+        }
+    }
 }
@@ -0,0 +1,447 @@
+/*
+ * Copyright (C) 2007 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.piebridge.android.preference;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import android.os.Handler;
+import android.preference.Preference;
+import android.preference.PreferenceGroup;
+import android.preference.PreferenceScreen;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+
+/**
+ * Persistent adapter over a {@link PreferenceScreen}, flattened the same way as
+ * the framework's PreferenceGroupAdapter.
+ * <p>
+ * Unlike {@link PreferenceScreen#bind(ListView)}, the adapter is kept across
+ * rebinds: changed preferences are coalesced and only rebind their own rows
+ * if visible, and a hierarchy change refreshes the list in place with stable
+ * ids, so scroll position and recycled views survive.
+ * <p>
+ * Rows are recycled by layout and widget layout, so different preference classes
+ * share row views when they build and bind them with the default onCreateView
+ * and onBindView; a class overriding either gets view types of its own. View types
+ * are kept across rebinds, with room for types first seen after the list is set.
+ */
+class PreferenceListAdapter extends BaseAdapter implements AdapterView.OnItemClickListener {
+
+    private static final String CHANGE_INTERNAL_LISTENER =
+        "android.preference.Preference$OnPreferenceChangeInternalListener";
+
+    private static Method sOnPreferenceChange;
+
+    private PreferenceScreen mPreferenceScreen;
+    private ListView mList;
+
+    private List<Preference> mPreferences = new ArrayList<Preference>();
+    private IdentityHashMap<Preference, Integer> mPositions = new IdentityHashMap<Preference, Integer>();
+    private final WeakHashMap<Preference, Long> mIds = new WeakHashMap<Preference, Long>();
+    private long mNextId;
+
+    /**
+     * View types to allow for beyond those present when the list is set.
+     */
+    private static final int EXTRA_VIEW_TYPES = 8;
+
+    private static final Map<Class<?>, Boolean> sDefaultViews = new HashMap<Class<?>, Boolean>();
+
+    private final HashMap<ViewType, Integer> mViewTypes = new HashMap<ViewType, Integer>();
+    private final ArrayList<ViewType> mViewTypeKeys = new ArrayList<ViewType>();
+    private int[] mItemViewTypes = new int[0];
+    private int mViewTypeCount;
+
+    private final Handler mHandler = new Handler();
+    private boolean mSyncPending;
+
+    private Object mChangeListener;
+
+    private PreferenceViewPool mViewPool;
+
+    /**
+     * changed preferences to rebind, coalesced so a dependency fan-out binds once
+     */
+    private final LinkedHashSet<Preference> mChanged = new LinkedHashSet<Preference>();
+
+    private final Runnable mChangeRunnable = new Runnable() {
+        public void run() {
+            ArrayList<Preference> changed = new ArrayList<Preference>(mChanged);
+            mChanged.clear();
+            for (Preference preference : changed) {
+                rebindPreference(preference);
+            }
+        }
+    };
+
+    private final Runnable mSyncRunnable = new Runnable() {
+        public void run() {
+            mSyncPending = false;
+            syncPreferences();
+        }
+    };
+
+    private final InvocationHandler mChangeHandler = new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                if (args != null && args.length == 1) {
+                    // equals(Object)
+                    return proxy == args[0];
+                }
+                return method.invoke(this, args);
+            }
+            if (method.equals(sOnPreferenceChange)) {
+                onPreferenceChange((Preference) args[0]);
+            } else {
+                onPreferenceHierarchyChange();
+            }
+            return null;
+        }
+    };
+
+    /**
+     * Shows the given hierarchy, refreshing only if the flattened rows differ.
+     *
+     * @param preferenceScreen root of the hierarchy, or null
+     */
+    void setPreferenceScreen(PreferenceScreen preferenceScreen) {
+        if (mPreferenceScreen != preferenceScreen) {
+            if (mPreferenceScreen != null) {
+                setChangeListener(mPreferenceScreen, null);
+            }
+            mPreferenceScreen = preferenceScreen;
+        }
+        syncPreferences();
+    }
+
+    PreferenceScreen getPreferenceScreen() {
+        return mPreferenceScreen;
+    }
+
+    /**
+     * Installs the adapter on the list, or detaches it when list is null.
+     */
+    void bind(ListView list) {
+        mList = list;
+        if (list != null && list.getAdapter() != this) {
+            // a new list asks for the view type count again
+            mViewTypeCount = 0;
+            list.setOnItemClickListener(this);
+            list.setAdapter(this);
+        }
+    }
+
+    /**
+     * Sets the pool to take row views from before inflating, or null.
+     */
+    void setViewPool(PreferenceViewPool viewPool) {
+        mViewPool = viewPool;
+    }
+
+    /**
+     * @return view type of the row at the position, or null if out of range
+     */
+    ViewType getViewTypeKey(int position) {
+        if (position < 0 || position >= getCount()) {
+            return null;
+        }
+        return mViewTypeKeys.get(mItemViewTypes[position]);
+    }
+
+    private void onPreferenceHierarchyChange() {
+        if (!mSyncPending) {
+            mSyncPending = true;
+            mHandler.post(mSyncRunnable);
+        }
+    }
+
+    private void onPreferenceChange(Preference preference) {
+        if (mChanged.isEmpty()) {
+            mHandler.post(mChangeRunnable);
+        }
+        mChanged.add(preference);
+    }
+
+    private void rebindPreference(Preference preference) {
+        Integer position = mPositions.get(preference);
+        if (position == null) {
+            return;
+        }
+        final int viewType = getViewType(preference);
+        if (viewType != mItemViewTypes[position]) {
+            // the row view cannot be rebound in place
+            mItemViewTypes[position] = viewType;
+            notifyDataSetChanged();
+            return;
+        }
+        if (mList == null) {
+            return;
+        }
+        int index = position + mList.getHeaderViewsCount() - mList.getFirstVisiblePosition();
+        if (index >= 0 && index < mList.getChildCount()) {
+            preference.getView(mList.getChildAt(index), mList);
+        }
+    }
+
+    private void syncPreferences() {
+        mHandler.removeCallbacks(mSyncRunnable);
+        mSyncPending = false;
+
+        List<Preference> preferences = new ArrayList<Preference>(mPreferences.size());
+        if (mPreferenceScreen != null) {
+            setChangeListener(mPreferenceScreen, getChangeListener());
+            flattenPreferenceGroup(preferences, mPreferenceScreen);
+        }
+        if (preferences.equals(mPreferences)) {
+            return;
+        }
+        IdentityHashMap<Preference, Integer> positions = new IdentityHashMap<Preference, Integer>();
+        final int size = preferences.size();
+        int[] itemViewTypes = new int[size];
+        for (int i = 0; i < size; ++i) {
+            Preference preference = preferences.get(i);
+            positions.put(preference, i);
+            itemViewTypes[i] = getViewType(preference);
+            if (!mPositions.containsKey(preference)) {
+                setChangeListener(preference, getChangeListener());
+            }
+        }
+        for (Preference preference : mPreferences) {
+            if (!positions.containsKey(preference)) {
+                setChangeListener(preference, null);
+            }
+        }
+        mPreferences = preferences;
+        mPositions = positions;
+        mItemViewTypes = itemViewTypes;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * @return index of the view type of the preference, assigned on first sight
+     */
+    private int getViewType(Preference preference) {
+        final Class<?> clazz = preference.getClass();
+        ViewType viewType = new ViewType(preference.getLayoutResource(), preference.getWidgetLayoutResource(),
+            hasDefaultViews(clazz) ? null : clazz);
+        Integer index = mViewTypes.get(viewType);
+        if (index == null) {
+            index = mViewTypes.size();
+            mViewTypes.put(viewType, index);
+            mViewTypeKeys.add(viewType);
+        }
+        return index;
+    }
+
+    /**
+     * whether row views of the class are made from its layout and widget layout only,
+     * and bound without changes of its own that would show on rows of other classes
+     */
+    private static boolean hasDefaultViews(Class<?> clazz) {
+        synchronized (sDefaultViews) {
+            Boolean value = sDefaultViews.get(clazz);
+            if (value == null) {
+                value = isDeclaredByPreference(clazz, "onCreateView", ViewGroup.class)
+                    && isDeclaredByPreference(clazz, "onBindView", View.class);
+                sDefaultViews.put(clazz, value);
+            }
+            return value;
+        }
+    }
+
+    private static boolean isDeclaredByPreference(Class<?> clazz, String methodName, Class<?> parameterType) {
+        Method method = PreferenceFragment.getMethod(clazz, methodName, new Class[] { parameterType });
+        return method != null && method.getDeclaringClass() == Preference.class;
+    }
+
+    private void flattenPreferenceGroup(List<Preference> preferences, PreferenceGroup group) {
+        // FIXME: group.sortPreferences();
+        PreferenceFragment.callVoidMethod(group, "sortPreferences", null, null);
+
+        final int count = group.getPreferenceCount();
+        for (int i = 0; i < count; ++i) {
+            final Preference preference = group.getPreference(i);
+            preferences.add(preference);
+            // FIXME: if (preference instanceof PreferenceGroup && preference.isOnSameScreenAsChildren())
+            if (preference instanceof PreferenceGroup
+                    && PreferenceFragment.callReturnMethod(preference, "isOnSameScreenAsChildren",
+                        Boolean.class, null, null)) {
+                flattenPreferenceGroup(preferences, (PreferenceGroup) preference);
+            }
+        }
+    }
+
+    private Object getChangeListener() {
+        if (mChangeListener == null) {
+            Class<?> clazz = PreferenceFragment.findClass(CHANGE_INTERNAL_LISTENER);
+            if (clazz != null) {
+                sOnPreferenceChange = PreferenceFragment.getMethod(clazz, "onPreferenceChange",
+                    new Class[] { Preference.class });
+                mChangeListener = Proxy.newProxyInstance(clazz.getClassLoader(), new Class[] { clazz }, mChangeHandler);
+            }
+        }
+        return mChangeListener;
+    }
+
+    private static void setChangeListener(Preference preference, Object listener) {
+        Class<?> clazz = PreferenceFragment.findClass(CHANGE_INTERNAL_LISTENER);
+        if (clazz != null) {
+            // FIXME: preference.setOnPreferenceChangeInternalListener(listener);
+            PreferenceFragment.callVoidMethod(preference, "setOnPreferenceChangeInternalListener",
+                new Class[] { clazz }, new Object[] { listener });
+        }
+    }
+
+    @Override
+    public int getCount() {
+        return mPreferences.size();
+    }
+
+    @Override
+    public Preference getItem(int position) {
+        if (position < 0 || position >= getCount()) {
+            return null;
+        }
+        return mPreferences.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        Preference preference = getItem(position);
+        if (preference == null) {
+            return ListView.INVALID_ROW_ID;
+        }
+        Long id = mIds.get(preference);
+        if (id == null) {
+            id = mNextId++;
+            mIds.put(preference, id);
+        }
+        return id;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        // There should always be a preference group, and these groups are always disabled
+        return false;
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        if (position < 0 || position >= getCount()) {
+            return true;
+        }
+        return getItem(position).isSelectable();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        if (position < 0 || position >= getCount()) {
+            return IGNORE_ITEM_VIEW_TYPE;
+        }
+        final int viewType = mItemViewTypes[position];
+        if (viewType >= mViewTypeCount) {
+            // views of types seen after the list asked are not recycled
+            return IGNORE_ITEM_VIEW_TYPE;
+        }
+        return viewType;
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        if (mViewTypeCount == 0) {
+            mViewTypeCount = mViewTypes.size() + EXTRA_VIEW_TYPES;
+        }
+        return mViewTypeCount;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        final long start = PreferenceFragment.startTiming();
+        final Preference preference = getItem(position);
+        if (convertView == null && mViewPool != null) {
+            convertView = mViewPool.obtainRow(getViewTypeKey(position));
+        }
+        try {
+            return preference.getView(convertView, parent);
+        } finally {
+            PreferenceFragment.endTiming(PreferenceFragment.PHASE_GET_VIEW,
+                convertView == null ? preference.getClass().getName() : null, start);
+        }
+    }
+
+    @Override
+    public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+        Object item = parent.getItemAtPosition(position);
+        if (!(item instanceof Preference)) {
+            return;
+        }
+        // FIXME: ((Preference) item).performClick(mPreferenceScreen);
+        PreferenceFragment.callVoidMethod(item, "performClick",
+            new Class[] { PreferenceScreen.class }, new Object[] { mPreferenceScreen });
+    }
+
+    /**
+     * Row views can be shared by preferences with equal layouts, and by class
+     * when the class builds its own row view.
+     */
+    static final class ViewType {
+        private final int mLayoutResId;
+        private final int mWidgetLayoutResId;
+        private final Class<?> mClass;
+
+        ViewType(int layoutResId, int widgetLayoutResId, Class<?> clazz) {
+            mLayoutResId = layoutResId;
+            mWidgetLayoutResId = widgetLayoutResId;
+            mClass = clazz;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ViewType)) {
+                return false;
+            }
+            ViewType other = (ViewType) o;
+            return mLayoutResId == other.mLayoutResId && mWidgetLayoutResId == other.mWidgetLayoutResId
+                && mClass == other.mClass;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = 31 * mLayoutResId + mWidgetLayoutResId;
+            return 31 * result + (mClass == null ? 0 : mClass.hashCode());
+        }
+    }
+
+}
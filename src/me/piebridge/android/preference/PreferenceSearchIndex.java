@@ -0,0 +1,631 @@
+/*
+ * Copyright (C) 2026 The preference-fragment-compat Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.piebridge.android.preference;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.os.Bundle;
+import android.preference.PreferenceManager;
+import android.support.v4.app.Fragment;
+
+/**
+ * Searchable index of the preferences declared in preference XML resources.
+ * <p>
+ * The index is built by walking the XML, without constructing any
+ * {@link android.preference.Preference}, and keeps for each preference its key,
+ * title, summary, owning resource and the titles of the enclosing screens.
+ * It can be saved to a file and is read back only if the application version,
+ * the versions of the packages it indexed and the locale are unchanged.
+ * <p>
+ * Building and loading read resources and files, so call them off the main thread:
+ *
+ * <pre>
+ * PreferenceSearchIndex index = new PreferenceSearchIndex.Builder(context)
+ *         .addResource(R.xml.preferences, SettingsFragment.class.getName())
+ *         .load(new File(context.getCacheDir(), "preferences.idx"));
+ * List&lt;PreferenceSearchIndex.Entry&gt; entries = index.query("wifi sl");
+ * </pre>
+ */
+public final class PreferenceSearchIndex {
+
+    private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+
+    private static final int MAGIC = 0x50534958;
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * One indexed preference.
+     */
+    public static final class Entry {
+        /** Key of the preference, or null. */
+        public final String key;
+        /** Title of the preference, or null. */
+        public final String title;
+        /** Summary of the preference, or null. */
+        public final String summary;
+        /** Package of the resource, null for the application itself. */
+        public final String packageName;
+        /** Preference XML resource declaring the preference. */
+        public final int resId;
+        /** Class name of the {@link PreferenceFragment} showing the resource, or null. */
+        public final String fragment;
+        /** Titles of the enclosing preference screens, outermost first. */
+        public final String[] breadcrumb;
+
+        Entry(String key, String title, String summary, String packageName, int resId,
+                String fragment, String[] breadcrumb) {
+            this.key = key;
+            this.title = title;
+            this.summary = summary;
+            this.packageName = packageName;
+            this.resId = resId;
+            this.fragment = fragment;
+            this.breadcrumb = breadcrumb;
+        }
+
+        /**
+         * Creates the fragment showing this preference, which scrolls to it when
+         * created, see {@link PreferenceFragment#ARG_PREFERENCE_KEY}.
+         *
+         * @return the fragment, or null if there is no fragment for this entry
+         */
+        public Fragment instantiate(Context context) {
+            if (fragment == null) {
+                return null;
+            }
+            Bundle args = new Bundle();
+            args.putString(PreferenceFragment.ARG_PREFERENCE_KEY, key);
+            return Fragment.instantiate(context, fragment, args);
+        }
+
+        @Override
+        public String toString() {
+            return key + ": " + title;
+        }
+    }
+
+    private final String mStamp;
+    private final List<Entry> mEntries;
+
+    /**
+     * tokens of titles, summaries and breadcrumbs, sorted for prefix lookup
+     */
+    private final String[] mTokens;
+    private final int[][] mTokenEntries;
+
+    PreferenceSearchIndex(String stamp, List<Entry> entries) {
+        mStamp = stamp;
+        mEntries = Collections.unmodifiableList(entries);
+
+        TreeMap<String, BitSet> tokens = new TreeMap<String, BitSet>();
+        final int size = entries.size();
+        for (int i = 0; i < size; ++i) {
+            Entry entry = entries.get(i);
+            for (String token : tokenize(entry.title)) {
+                addToken(tokens, token, i);
+            }
+            for (String token : tokenize(entry.summary)) {
+                addToken(tokens, token, i);
+            }
+            for (String title : entry.breadcrumb) {
+                for (String token : tokenize(title)) {
+                    addToken(tokens, token, i);
+                }
+            }
+        }
+        mTokens = new String[tokens.size()];
+        mTokenEntries = new int[tokens.size()][];
+        int t = 0;
+        for (Map.Entry<String, BitSet> token : tokens.entrySet()) {
+            BitSet bits = token.getValue();
+            int[] ids = new int[bits.cardinality()];
+            int n = 0;
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                ids[n++] = i;
+            }
+            mTokens[t] = token.getKey();
+            mTokenEntries[t] = ids;
+            ++t;
+        }
+    }
+
+    private static void addToken(TreeMap<String, BitSet> tokens, String token, int entry) {
+        BitSet bits = tokens.get(token);
+        if (bits == null) {
+            bits = new BitSet();
+            tokens.put(token, bits);
+        }
+        bits.set(entry);
+    }
+
+    /**
+     * split into lower case runs of letters and digits, plus the words joined
+     * across punctuation, so "Wi-Fi" gives "wifi", "wi" and "fi"
+     */
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        ArrayList<String> tokens = new ArrayList<String>();
+        final String lower = text.toLowerCase(Locale.getDefault());
+        final int length = lower.length();
+        StringBuilder word = new StringBuilder();
+        int runs = 0;
+        int start = -1;
+        for (int i = 0; i <= length; ++i) {
+            final char c = i < length ? lower.charAt(i) : ' ';
+            final boolean letter = Character.isLetterOrDigit(c);
+            if (letter) {
+                word.append(c);
+                if (start < 0) {
+                    start = i;
+                }
+                continue;
+            }
+            if (start >= 0) {
+                tokens.add(lower.substring(start, i));
+                ++runs;
+                start = -1;
+            }
+            if (Character.isWhitespace(c) || i == length) {
+                if (runs > 1) {
+                    tokens.add(word.toString());
+                }
+                word.setLength(0);
+                runs = 0;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * @return all entries in document order
+     */
+    public List<Entry> getEntries() {
+        return mEntries;
+    }
+
+    /**
+     * Finds entries whose title, summary or breadcrumb has, for every token of the
+     * query, a word starting with it. Entries with a match in the title come first,
+     * otherwise the document order is kept.
+     *
+     * @param query Words or word prefixes, in any case.
+     * @return matching entries, empty if none or the query has no words
+     */
+    public List<Entry> query(String query) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        BitSet matches = null;
+        for (String queryToken : queryTokens) {
+            BitSet tokenMatches = findPrefix(queryToken);
+            if (matches == null) {
+                matches = tokenMatches;
+            } else {
+                matches.and(tokenMatches);
+            }
+            if (matches.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+        ArrayList<Entry> titles = new ArrayList<Entry>();
+        ArrayList<Entry> others = new ArrayList<Entry>();
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            Entry entry = mEntries.get(i);
+            if (matchesAll(tokenize(entry.title), queryTokens)) {
+                titles.add(entry);
+            } else {
+                others.add(entry);
+            }
+        }
+        titles.addAll(others);
+        return titles;
+    }
+
+    private static boolean matchesAll(List<String> tokens, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(prefix)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private BitSet findPrefix(String prefix) {
+        BitSet matches = new BitSet();
+        int index = Arrays.binarySearch(mTokens, prefix);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        for (; index < mTokens.length && mTokens[index].startsWith(prefix); ++index) {
+            for (int entry : mTokenEntries[index]) {
+                matches.set(entry);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Writes the index to the file, replacing it.
+     *
+     * @return true if written
+     */
+    public boolean save(File file) {
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            write(out);
+            out.close();
+            out = null;
+            return tmp.renameTo(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+                tmp.delete();
+            }
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        // strings are written once and referred to by index
+        ArrayList<String> strings = new ArrayList<String>();
+        HashMap<String, Integer> ids = new HashMap<String, Integer>();
+        for (Entry entry : mEntries) {
+            intern(strings, ids, entry.key);
+            intern(strings, ids, entry.title);
+            intern(strings, ids, entry.summary);
+            intern(strings, ids, entry.packageName);
+            intern(strings, ids, entry.fragment);
+            for (String title : entry.breadcrumb) {
+                intern(strings, ids, title);
+            }
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(mStamp);
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+        out.writeInt(mEntries.size());
+        for (Entry entry : mEntries) {
+            out.writeInt(indexOf(ids, entry.key));
+            out.writeInt(indexOf(ids, entry.title));
+            out.writeInt(indexOf(ids, entry.summary));
+            out.writeInt(indexOf(ids, entry.packageName));
+            out.writeInt(entry.resId);
+            out.writeInt(indexOf(ids, entry.fragment));
+            out.writeShort(entry.breadcrumb.length);
+            for (String title : entry.breadcrumb) {
+                out.writeInt(indexOf(ids, title));
+            }
+        }
+    }
+
+    private static void intern(List<String> strings, Map<String, Integer> ids, String string) {
+        if (string != null && !ids.containsKey(string)) {
+            ids.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    private static int indexOf(Map<String, Integer> ids, String string) {
+        return string == null ? -1 : ids.get(string);
+    }
+
+    /**
+     * Reads an index written by {@link #save(File)}.
+     *
+     * @param stamp Expected version stamp, or null to accept any.
+     * @return the index, or null if missing, unreadable or stale
+     */
+    static PreferenceSearchIndex read(File file, String stamp) {
+        if (!file.isFile()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            String fileStamp = in.readUTF();
+            if (stamp != null && !stamp.equals(fileStamp)) {
+                return null;
+            }
+            String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; ++i) {
+                strings[i] = in.readUTF();
+            }
+            final int size = in.readInt();
+            ArrayList<Entry> entries = new ArrayList<Entry>(size);
+            for (int i = 0; i < size; ++i) {
+                String key = get(strings, in.readInt());
+                String title = get(strings, in.readInt());
+                String summary = get(strings, in.readInt());
+                String packageName = get(strings, in.readInt());
+                int resId = in.readInt();
+                String fragment = get(strings, in.readInt());
+                String[] breadcrumb = new String[in.readShort()];
+                for (int j = 0; j < breadcrumb.length; ++j) {
+                    breadcrumb[j] = get(strings, in.readInt());
+                }
+                entries.add(new Entry(key, title, summary, packageName, resId, fragment, breadcrumb));
+            }
+            return new PreferenceSearchIndex(fileStamp, entries);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } catch (IndexOutOfBoundsException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private static String get(String[] strings, int index) {
+        return index < 0 ? null : strings[index];
+    }
+
+    /**
+     * Collects the preference resources to index.
+     */
+    public static final class Builder {
+        private final Context mContext;
+        private final ArrayList<Object[]> mSources = new ArrayList<Object[]>();
+
+        public Builder(Context context) {
+            mContext = context.getApplicationContext();
+        }
+
+        /**
+         * Adds a preference XML resource of the application.
+         *
+         * @param preferencesResId The XML resource, as given to
+         *            {@link PreferenceFragment#addPreferencesFromResource(int)}.
+         * @param fragment Class name of the {@link PreferenceFragment} showing it, or null.
+         */
+        public Builder addResource(int preferencesResId, String fragment) {
+            mSources.add(new Object[] { preferencesResId, fragment });
+            return this;
+        }
+
+        /**
+         * Adds the preference XML resources of activities matching the intent, as given to
+         * {@link PreferenceFragment#addPreferencesFromIntent(Intent)}.
+         *
+         * @param fragment Class name of the {@link PreferenceFragment} showing them, or null.
+         */
+        public Builder addIntent(Intent intent, String fragment) {
+            mSources.add(new Object[] { intent, fragment });
+            return this;
+        }
+
+        /**
+         * Reads the index from the file if it is up to date, otherwise builds it
+         * and saves it to the file.
+         */
+        public PreferenceSearchIndex load(File file) {
+            List<Object[]> sources = resolveSources();
+            String stamp = getStamp(sources);
+            PreferenceSearchIndex index = read(file, stamp);
+            if (index == null) {
+                index = build(sources, stamp);
+                index.save(file);
+            }
+            return index;
+        }
+
+        /**
+         * Builds the index from the resources.
+         */
+        public PreferenceSearchIndex build() {
+            List<Object[]> sources = resolveSources();
+            return build(sources, getStamp(sources));
+        }
+
+        /**
+         * @return resource sources as package name, resource id and fragment,
+         *         with intents resolved the same way as addPreferencesFromIntent
+         */
+        private List<Object[]> resolveSources() {
+            ArrayList<Object[]> sources = new ArrayList<Object[]>();
+            for (Object[] source : mSources) {
+                if (source[0] instanceof Integer) {
+                    sources.add(new Object[] { null, source[0], source[1] });
+                    continue;
+                }
+                PackageManager pm = mContext.getPackageManager();
+                List<ResolveInfo> activities = pm.queryIntentActivities((Intent) source[0],
+                    PackageManager.GET_META_DATA);
+                for (int i = activities.size() - 1; i >= 0; i--) {
+                    ActivityInfo activityInfo = activities.get(i).activityInfo;
+                    Bundle metaData = activityInfo.metaData;
+                    if (metaData == null || !metaData.containsKey(PreferenceManager.METADATA_KEY_PREFERENCES)) {
+                        continue;
+                    }
+                    int resId = metaData.getInt(PreferenceManager.METADATA_KEY_PREFERENCES);
+                    sources.add(new Object[] { activityInfo.packageName, resId, source[1] });
+                }
+            }
+            return sources;
+        }
+
+        /**
+         * @return versions of the indexed packages and the locale
+         */
+        private String getStamp(List<Object[]> sources) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(Locale.getDefault());
+            sb.append(' ').append(getVersion(mContext.getPackageName()));
+            for (Object[] source : sources) {
+                sb.append(' ').append(source[1]);
+                if (source[0] != null) {
+                    sb.append('@').append(source[0]).append(':').append(getVersion((String) source[0]));
+                }
+            }
+            return sb.toString();
+        }
+
+        private int getVersion(String packageName) {
+            try {
+                return mContext.getPackageManager().getPackageInfo(packageName, 0).versionCode;
+            } catch (PackageManager.NameNotFoundException e) {
+                return -1;
+            }
+        }
+
+        private PreferenceSearchIndex build(List<Object[]> sources, String stamp) {
+            ArrayList<Entry> entries = new ArrayList<Entry>();
+            for (Object[] source : sources) {
+                String packageName = (String) source[0];
+                int resId = (Integer) source[1];
+                Resources resources;
+                if (packageName == null) {
+                    resources = mContext.getResources();
+                } else {
+                    try {
+                        resources = mContext.getPackageManager().getResourcesForApplication(packageName);
+                    } catch (PackageManager.NameNotFoundException e) {
+                        e.printStackTrace();
+                        continue;
+                    }
+                }
+                XmlResourceParser parser = null;
+                try {
+                    parser = resources.getXml(resId);
+                    index(entries, resources, parser, packageName, resId, (String) source[2]);
+                } catch (Resources.NotFoundException e) {
+                    e.printStackTrace();
+                } catch (XmlPullParserException e) {
+                    e.printStackTrace();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } finally {
+                    if (parser != null) {
+                        parser.close();
+                    }
+                }
+            }
+            return new PreferenceSearchIndex(stamp, entries);
+        }
+
+        private static void index(List<Entry> entries, Resources resources, XmlResourceParser parser,
+                String packageName, int resId, String fragment) throws XmlPullParserException, IOException {
+            // titles of open screens, null for other elements
+            ArrayList<String> screens = new ArrayList<String>();
+            ArrayList<String> breadcrumb = new ArrayList<String>();
+            int type;
+            while ((type = parser.next()) != XmlPullParser.END_DOCUMENT) {
+                if (type == XmlPullParser.END_TAG) {
+                    if (!screens.isEmpty() && screens.remove(screens.size() - 1) != null) {
+                        breadcrumb.remove(breadcrumb.size() - 1);
+                    }
+                    continue;
+                }
+                if (type != XmlPullParser.START_TAG) {
+                    continue;
+                }
+                final String name = parser.getName();
+                if ("intent".equals(name) || "extra".equals(name)) {
+                    screens.add(null);
+                    continue;
+                }
+                String key = getString(resources, parser, "key");
+                String title = getString(resources, parser, "title");
+                String summary = getString(resources, parser, "summary");
+                // the root screen is the fragment itself
+                if (parser.getDepth() > 1 && (key != null || title != null)) {
+                    entries.add(new Entry(key, title, summary, packageName, resId, fragment,
+                        breadcrumb.toArray(new String[breadcrumb.size()])));
+                }
+                if (name.endsWith("PreferenceScreen") && parser.getDepth() > 1) {
+                    screens.add(title != null ? title : "");
+                    breadcrumb.add(title != null ? title : "");
+                } else {
+                    screens.add(null);
+                }
+            }
+        }
+
+        /**
+         * @return the attribute resolved as string, or null
+         */
+        private static String getString(Resources resources, XmlResourceParser parser, String attribute) {
+            int resId = parser.getAttributeResourceValue(ANDROID_NS, attribute, 0);
+            if (resId != 0) {
+                try {
+                    return resources.getString(resId);
+                } catch (Resources.NotFoundException e) {
+                    return null;
+                }
+            }
+            return parser.getAttributeValue(ANDROID_NS, attribute);
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2026 The preference-fragment-compat Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.piebridge.android.preference;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.animation.Animation;
+import android.widget.ListView;
+
+/**
+ * Views given back by {@link PreferenceFragment}s of one activity in
+ * {@link PreferenceFragment#onDestroyView()}, to be reused by the next
+ * {@link PreferenceFragment#onCreateView} instead of inflating again.
+ * <p>
+ * A pool lives while at least one fragment using it is attached to the
+ * activity, so views never outlive the activity they were created for.
+ * Root views may still be animated out of their container when given back,
+ * so they are only taken once free of it.
+ * All methods are called on the main thread.
+ */
+class PreferenceViewPool {
+
+    /**
+     * Maximum number of root views kept, enough for a pager with its neighbours.
+     */
+    static final int MAX_ROOT_VIEWS = 3;
+
+    /**
+     * Maximum number of row views kept per view type.
+     */
+    static final int MAX_ROW_VIEWS = 16;
+
+    private static final WeakHashMap<Activity, PreferenceViewPool> sPools =
+        new WeakHashMap<Activity, PreferenceViewPool>();
+
+    private final ArrayList<View> mRoots = new ArrayList<View>();
+    private final HashMap<PreferenceListAdapter.ViewType, ArrayList<View>> mRows =
+        new HashMap<PreferenceListAdapter.ViewType, ArrayList<View>>();
+    private int mUsers;
+
+    /**
+     * Returns the pool of the activity, created if needed; pair with {@link #release(Activity)}.
+     */
+    static PreferenceViewPool acquire(Activity activity) {
+        PreferenceViewPool pool = sPools.get(activity);
+        if (pool == null) {
+            pool = new PreferenceViewPool();
+            sPools.put(activity, pool);
+        }
+        ++pool.mUsers;
+        return pool;
+    }
+
+    /**
+     * Drops the pool of the activity and its views once the last fragment is gone.
+     */
+    static void release(Activity activity) {
+        PreferenceViewPool pool = sPools.get(activity);
+        if (pool != null && --pool.mUsers <= 0) {
+            sPools.remove(activity);
+            pool.mRoots.clear();
+            pool.mRows.clear();
+        }
+    }
+
+    /**
+     * @return a recycled root view, or null
+     */
+    View obtainRoot() {
+        while (!mRoots.isEmpty()) {
+            View root = mRoots.remove(mRoots.size() - 1);
+            if (detach(root)) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    void recycleRoot(View root) {
+        if (mRoots.size() < MAX_ROOT_VIEWS && !mRoots.contains(root)) {
+            mRoots.add(root);
+        }
+    }
+
+    /**
+     * @return a recycled row view of the view type, or null
+     */
+    View obtainRow(PreferenceListAdapter.ViewType viewType) {
+        ArrayList<View> rows = mRows.get(viewType);
+        while (rows != null && !rows.isEmpty()) {
+            View row = rows.remove(rows.size() - 1);
+            if (detach(row)) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Keeps the visible rows of the list and detaches them from it.
+     */
+    void recycleRows(ListView list, PreferenceListAdapter adapter) {
+        final int first = list.getFirstVisiblePosition() - list.getHeaderViewsCount();
+        final int count = list.getChildCount();
+        for (int i = 0; i < count; ++i) {
+            PreferenceListAdapter.ViewType viewType = adapter.getViewTypeKey(first + i);
+            if (viewType == null) {
+                continue;
+            }
+            ArrayList<View> rows = mRows.get(viewType);
+            if (rows == null) {
+                rows = new ArrayList<View>();
+                mRows.put(viewType, rows);
+            }
+            if (rows.size() < MAX_ROW_VIEWS) {
+                rows.add(list.getChildAt(i));
+            }
+        }
+        // removes the children and clears the recycler of the list
+        list.setAdapter(null);
+    }
+
+    /**
+     * remove the view from a parent no longer shown, return whether it is free
+     */
+    private static boolean detach(View view) {
+        if (isAnimating(view)) {
+            return false;
+        }
+        ViewParent parent = view.getParent();
+        if (parent == null) {
+            return true;
+        }
+        // the wrapper added by the support library before honeycomb
+        if (parent instanceof ViewGroup && parent.getParent() == null && !isAnimating((View) parent)) {
+            ((ViewGroup) parent).removeView(view);
+            return view.getParent() == null;
+        }
+        // still shown, or animated out of its container, which clears the parent when done
+        return false;
+    }
+
+    private static boolean isAnimating(View view) {
+        Animation animation = view.getAnimation();
+        return animation != null && !animation.hasEnded();
+    }
+
+}
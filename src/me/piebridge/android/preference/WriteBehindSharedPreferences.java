@@ -0,0 +1,376 @@
+/*
+ * Copyright (C) 2026 The preference-fragment-compat Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.piebridge.android.preference;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * {@link SharedPreferences} that buffers edits in memory and writes them behind.
+ * <p>
+ * Committed edits are coalesced per key and served to readers from the buffer,
+ * then written to the underlying file with a single commit on the background
+ * executor, either after {@link #DELAY} of inactivity or when {@link #flush()}
+ * is called.
+ * <p>
+ * Listeners registered here are notified on the main thread on commit to the
+ * buffer; changes made to the underlying file through other instances are not
+ * reported.
+ */
+class WriteBehindSharedPreferences implements SharedPreferences {
+
+    /**
+     * Delay in milliseconds after the last commit before writing to disk.
+     */
+    static final long DELAY = 1000;
+
+    private static final Object REMOVED = new Object();
+
+    private final Context mContext;
+    private final String mName;
+    private final int mMode;
+    private SharedPreferences mSharedPreferences;
+
+    private final HashMap<String, Object> mWrites = new HashMap<String, Object>();
+    private int mClear;
+
+    private final WeakHashMap<OnSharedPreferenceChangeListener, Object> mListeners =
+        new WeakHashMap<OnSharedPreferenceChangeListener, Object>();
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final Runnable mFlush = new Runnable() {
+        public void run() {
+            flush();
+        }
+    };
+
+    WriteBehindSharedPreferences(Context context, String name, int mode) {
+        mContext = context.getApplicationContext();
+        mName = name;
+        mMode = mode;
+    }
+
+    private synchronized SharedPreferences getSharedPreferences() {
+        if (mSharedPreferences == null) {
+            mSharedPreferences = mContext.getSharedPreferences(mName, mMode);
+        }
+        return mSharedPreferences;
+    }
+
+    /**
+     * Writes buffered edits to disk with one commit on the background executor.
+     */
+    void flush() {
+        mHandler.removeCallbacks(mFlush);
+        final HashMap<String, Object> writes;
+        final int clear;
+        synchronized (this) {
+            if (mWrites.isEmpty() && mClear == 0) {
+                return;
+            }
+            writes = new HashMap<String, Object>(mWrites);
+            clear = mClear;
+        }
+        PreferenceFragment.getExecutor().submit(new Runnable() {
+            @Override
+            public void run() {
+                commit(writes, clear);
+            }
+        });
+    }
+
+    private void commit(HashMap<String, Object> writes, int clear) {
+        Editor editor = getSharedPreferences().edit();
+        if (clear != 0) {
+            editor.clear();
+        }
+        for (Map.Entry<String, Object> entry : writes.entrySet()) {
+            put(editor, entry.getKey(), entry.getValue());
+        }
+        editor.commit();
+        synchronized (this) {
+            // keep anything written again while committing
+            for (Map.Entry<String, Object> entry : writes.entrySet()) {
+                if (mWrites.get(entry.getKey()) == entry.getValue()) {
+                    mWrites.remove(entry.getKey());
+                }
+            }
+            if (mClear == clear) {
+                mClear = 0;
+            }
+        }
+    }
+
+    private static void put(Editor editor, String key, Object value) {
+        if (value == REMOVED || value == null) {
+            editor.remove(key);
+        } else if (value instanceof String) {
+            editor.putString(key, (String) value);
+        } else if (value instanceof Boolean) {
+            editor.putBoolean(key, (Boolean) value);
+        } else if (value instanceof Integer) {
+            editor.putInt(key, (Integer) value);
+        } else if (value instanceof Long) {
+            editor.putLong(key, (Long) value);
+        } else if (value instanceof Float) {
+            editor.putFloat(key, (Float) value);
+        } else if (value instanceof Set) {
+            @SuppressWarnings("unchecked")
+            Set<String> values = (Set<String>) value;
+            editor.putStringSet(key, values);
+        }
+    }
+
+    private synchronized void apply(HashMap<String, Object> writes, boolean clear) {
+        if (clear) {
+            mWrites.clear();
+            ++mClear;
+        }
+        mWrites.putAll(writes);
+    }
+
+    /**
+     * notify on the main thread like SharedPreferencesImpl, posted if committed elsewhere
+     */
+    private void notifyListeners(final Iterable<String> keys) {
+        final ArrayList<OnSharedPreferenceChangeListener> listeners;
+        synchronized (mListeners) {
+            if (mListeners.isEmpty()) {
+                return;
+            }
+            listeners = new ArrayList<OnSharedPreferenceChangeListener>(mListeners.keySet());
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            notifyListeners(listeners, keys);
+        } else {
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    notifyListeners(listeners, keys);
+                }
+            });
+        }
+    }
+
+    private void notifyListeners(ArrayList<OnSharedPreferenceChangeListener> listeners, Iterable<String> keys) {
+        for (String key : keys) {
+            for (OnSharedPreferenceChangeListener listener : listeners) {
+                listener.onSharedPreferenceChanged(this, key);
+            }
+        }
+    }
+
+    /**
+     * @return buffered value, {@link #REMOVED}, or null if not buffered
+     */
+    private synchronized Object getWrite(String key) {
+        Object value = mWrites.get(key);
+        if (value == null && mClear != 0) {
+            return REMOVED;
+        }
+        return value;
+    }
+
+    @Override
+    public Map<String, ?> getAll() {
+        HashMap<String, Object> all = new HashMap<String, Object>();
+        synchronized (this) {
+            if (mClear == 0) {
+                all.putAll(getSharedPreferences().getAll());
+            }
+            for (Map.Entry<String, Object> entry : mWrites.entrySet()) {
+                if (entry.getValue() == REMOVED) {
+                    all.remove(entry.getKey());
+                } else {
+                    all.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return all;
+    }
+
+    @Override
+    public String getString(String key, String defValue) {
+        Object value = getWrite(key);
+        if (value == null) {
+            return getSharedPreferences().getString(key, defValue);
+        }
+        return value == REMOVED ? defValue : (String) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<String> getStringSet(String key, Set<String> defValues) {
+        Object value = getWrite(key);
+        if (value == null) {
+            return getSharedPreferences().getStringSet(key, defValues);
+        }
+        return value == REMOVED ? defValues : (Set<String>) value;
+    }
+
+    @Override
+    public int getInt(String key, int defValue) {
+        Object value = getWrite(key);
+        if (value == null) {
+            return getSharedPreferences().getInt(key, defValue);
+        }
+        return value == REMOVED ? defValue : (Integer) value;
+    }
+
+    @Override
+    public long getLong(String key, long defValue) {
+        Object value = getWrite(key);
+        if (value == null) {
+            return getSharedPreferences().getLong(key, defValue);
+        }
+        return value == REMOVED ? defValue : (Long) value;
+    }
+
+    @Override
+    public float getFloat(String key, float defValue) {
+        Object value = getWrite(key);
+        if (value == null) {
+            return getSharedPreferences().getFloat(key, defValue);
+        }
+        return value == REMOVED ? defValue : (Float) value;
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defValue) {
+        Object value = getWrite(key);
+        if (value == null) {
+            return getSharedPreferences().getBoolean(key, defValue);
+        }
+        return value == REMOVED ? defValue : (Boolean) value;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        Object value = getWrite(key);
+        if (value == null) {
+            return getSharedPreferences().contains(key);
+        }
+        return value != REMOVED;
+    }
+
+    @Override
+    public Editor edit() {
+        return new BufferedEditor();
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        synchronized (mListeners) {
+            mListeners.put(listener, REMOVED);
+        }
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        synchronized (mListeners) {
+            mListeners.remove(listener);
+        }
+    }
+
+    private final class BufferedEditor implements Editor {
+        private final HashMap<String, Object> mModified = new HashMap<String, Object>();
+        private boolean mClearRequested;
+
+        @Override
+        public synchronized Editor putString(String key, String value) {
+            mModified.put(key, value == null ? REMOVED : value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putStringSet(String key, Set<String> values) {
+            mModified.put(key, values == null ? REMOVED : new HashSet<String>(values));
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putInt(String key, int value) {
+            mModified.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putLong(String key, long value) {
+            mModified.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putFloat(String key, float value) {
+            mModified.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor putBoolean(String key, boolean value) {
+            mModified.put(key, value);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor remove(String key) {
+            mModified.put(key, REMOVED);
+            return this;
+        }
+
+        @Override
+        public synchronized Editor clear() {
+            mClearRequested = true;
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            HashMap<String, Object> modified;
+            boolean clear;
+            synchronized (this) {
+                modified = new HashMap<String, Object>(mModified);
+                clear = mClearRequested;
+                mModified.clear();
+                mClearRequested = false;
+            }
+            WriteBehindSharedPreferences.this.apply(modified, clear);
+            mHandler.removeCallbacks(mFlush);
+            mHandler.postDelayed(mFlush, DELAY);
+            notifyListeners(modified.keySet());
+            return true;
+        }
+
+        /**
+         * Same as {@link #commit()}, which never blocks on disk.
+         */
+        public void apply() {
+            commit();
+        }
+    }
+
+}